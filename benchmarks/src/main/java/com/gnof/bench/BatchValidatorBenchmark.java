@@ -0,0 +1,102 @@
+package com.gnof.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gnof.core.BatchValidator;
+import com.gnof.core.JsonValidator;
+import com.gnof.core.RecordListener;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+
+/**
+ * Validates a newline delimited JSON file of small documents with every check
+ * type, on a growing number of workers. The score is in records, so it should
+ * grow with the workers up to the number of cores.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchValidatorBenchmark {
+
+	private static final int RECORDS = 20000;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	@Param({ "true", "false" })
+	public boolean ordered;
+
+	private Path file;
+	private ValidationPlan plan;
+	private BatchValidator batch;
+
+	@Setup
+	public void setup() throws IOException, InvalidValidationJson {
+		file = File.createTempFile("batch", ".ndjson").toPath();
+		try (Writer writer = Files.newBufferedWriter(file,
+				StandardCharsets.UTF_8)) {
+			for (int i = 0; i < RECORDS; i++) {
+				JsonObject record = Documents.create(Documents.SMALL);
+				record.addProperty("id", i);
+				writer.write(record.toString());
+				writer.write('\n');
+			}
+		}
+		plan = ValidationPlan.compile(Documents.allRules());
+		batch = new BatchValidator(new JsonValidator(), threads,
+				BatchValidator.DEFAULT_CHUNK_SIZE / 16);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		batch.close();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long validate(final Blackhole blackhole) throws IOException {
+		RecordListener listener = new RecordListener() {
+			@Override
+			public void validated(long offset, ValidationResult result) {
+				blackhole.consume(result.isPass());
+			}
+
+			@Override
+			public void failed(long offset, RuntimeException e) {
+				throw e;
+			}
+		};
+		return ordered ? batch.validate(plan, file, listener) : batch
+				.validateUnordered(plan, file, listener);
+	}
+}
@@ -0,0 +1,62 @@
+package com.gnof.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gnof.core.DocumentIndex;
+import com.gnof.core.ValidationUnit;
+import com.gnof.core.ValidationWorker;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Runs a single check type through the ValidationWorker against each document
+ * shape. The document is indexed once so only the check itself is measured.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckBenchmark {
+
+	@Param({ Documents.QUANTITY, Documents.VALUE, Documents.COMPOSITE,
+			Documents.ANCESTOR, Documents.HIERARCHY })
+	public String check;
+
+	@Param({ Documents.SMALL, Documents.WIDE, Documents.DEEP, Documents.ARRAYS })
+	public String shape;
+
+	private ValidationUnit unit;
+	private JsonObject document;
+	private DocumentIndex index;
+
+	@Setup
+	public void setup() throws InvalidValidationJson {
+		unit = new ValidationUnit(new JsonParser().parse(Documents.rule(check))
+				.getAsJsonObject());
+		document = Documents.create(shape);
+		index = DocumentIndex.build(document);
+	}
+
+	@Benchmark
+	public JsonObject validate() {
+		return new ValidationWorker().validate(unit, document, index);
+	}
+}
@@ -0,0 +1,66 @@
+package com.gnof.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gnof.core.DocumentIndex;
+import com.gnof.core.ValidationPlan;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+
+/**
+ * Builds the DocumentIndex of each document shape, on the benchmark thread and
+ * on the common fork join pool, of every key and for the plan of every kind of
+ * rule.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentIndexBenchmark {
+
+	@Param({ Documents.SMALL, Documents.WIDE, Documents.DEEP, Documents.ARRAYS })
+	public String shape;
+
+	private JsonObject document;
+
+	private ValidationPlan plan;
+
+	@Setup
+	public void setup() throws InvalidValidationJson {
+		document = Documents.create(shape);
+		plan = ValidationPlan.compile(Documents.allRules());
+	}
+
+	@Benchmark
+	public DocumentIndex build() {
+		return DocumentIndex.build(document);
+	}
+
+	@Benchmark
+	public DocumentIndex buildParallel() {
+		return DocumentIndex.build(document, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public DocumentIndex buildForPlan() {
+		return DocumentIndex.build(document, plan);
+	}
+}
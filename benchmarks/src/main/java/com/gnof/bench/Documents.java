@@ -0,0 +1,136 @@
+package com.gnof.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The documents and rules the benchmarks run against. Every document keeps
+ * its "status" and "cause" attributes in objects of an "items" list so each
+ * check type can be measured against each shape with the same rules.
+ *
+ * @author kofong
+ *
+ */
+final class Documents {
+
+	/** A handful of attributes */
+	static final String SMALL = "small";
+	/** Objects with a thousand attributes each */
+	static final String WIDE = "wide";
+	/** Sixty four nested levels, each with its own items */
+	static final String DEEP = "deep";
+	/** A list of five thousand items */
+	static final String ARRAYS = "arrays";
+
+	static final String QUANTITY = "quantity";
+	static final String VALUE = "value";
+	static final String COMPOSITE = "composite";
+	static final String ANCESTOR = "ancestor";
+	static final String HIERARCHY = "hierarchy";
+
+	private static final int WIDTH = 1000;
+	private static final int DEPTH = 64;
+	private static final int ITEMS = 5000;
+
+	private Documents() {
+	}
+
+	/**
+	 * Creates the document of the given shape
+	 *
+	 * @param shape
+	 *            - one of SMALL, WIDE, DEEP or ARRAYS
+	 * @return the document
+	 */
+	static JsonObject create(String shape) {
+		if (SMALL.equals(shape)) {
+			JsonObject json = new JsonObject();
+			json.addProperty("id", 1);
+			json.addProperty("name", "small");
+			json.add("items", items(2, 0));
+			return json;
+		}
+		if (WIDE.equals(shape)) {
+			JsonObject json = new JsonObject();
+			for (int i = 0; i < WIDTH; i++) {
+				json.addProperty("field" + i, "value" + i);
+			}
+			json.add("items", items(1, WIDTH));
+			return json;
+		}
+		if (DEEP.equals(shape)) {
+			JsonObject json = new JsonObject();
+			json.add("items", items(1, 0));
+			for (int i = 0; i < DEPTH; i++) {
+				JsonObject level = new JsonObject();
+				level.add("level", json);
+				level.add("items", items(1, 0));
+				json = level;
+			}
+			return json;
+		}
+		if (ARRAYS.equals(shape)) {
+			JsonObject json = new JsonObject();
+			json.add("items", items(ITEMS, 0));
+			return json;
+		}
+		throw new IllegalArgumentException("unknown shape: " + shape);
+	}
+
+	/**
+	 * The rule exercising a single check type
+	 *
+	 * @param check
+	 *            - one of QUANTITY, VALUE, COMPOSITE, ANCESTOR or HIERARCHY
+	 * @return the validation json of the rule
+	 */
+	static String rule(String check) {
+		if (QUANTITY.equals(check)) {
+			return "{\"attribute\":\"status\", \"quantity\":2}";
+		}
+		if (VALUE.equals(check)) {
+			return "{\"attribute\":\"cause\", \"value\":\"service\"}";
+		}
+		if (COMPOSITE.equals(check)) {
+			return "{\"attribute\":\"status\", \"composite\":{\"attribute\":\"cause\", \"value\":\"service\"}}";
+		}
+		if (ANCESTOR.equals(check)) {
+			return "{\"attribute\":\"status\", \"ancestor\":\"[items]\"}";
+		}
+		if (HIERARCHY.equals(check)) {
+			return "{\"attribute\":\"status\", \"hierarchy\":\"[[items]]\"}";
+		}
+		throw new IllegalArgumentException("unknown check: " + check);
+	}
+
+	/**
+	 * The rules of every check type in one validation json
+	 *
+	 * @return the validation json
+	 */
+	static String allRules() {
+		return "[" + rule(QUANTITY) + "," + rule(VALUE) + "," + rule(COMPOSITE)
+				+ "," + rule(ANCESTOR) + "," + rule(HIERARCHY) + "]";
+	}
+
+	private static JsonArray items(int count, int fields) {
+		JsonArray list = new JsonArray();
+		for (int i = 0; i < count; i++) {
+			JsonObject item = new JsonObject();
+			item.addProperty("id", i);
+			item.addProperty("status", i % 2 == 0);
+			item.addProperty("cause", i % 3 == 0 ? "service" : "device");
+			JsonArray values = new JsonArray();
+			for (int v = 0; v < 10; v++) {
+				values.add(new JsonPrimitive(v));
+			}
+			item.add("values", values);
+			for (int f = 0; f < fields; f++) {
+				item.addProperty("field" + f, f);
+			}
+			list.add(item);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,78 @@
+package com.gnof.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.PlanCache;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonObject;
+
+/**
+ * Validates every check type at once against each document shape, from the
+ * strings through parsing and compiling, and from a compiled plan, with the
+ * rules evaluated one after the other and at once on the common pool.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonValidatorBenchmark {
+
+	@Param({ Documents.SMALL, Documents.WIDE, Documents.DEEP, Documents.ARRAYS })
+	public String shape;
+
+	private String rules;
+	private String documentString;
+	private JsonObject document;
+	private ValidationPlan plan;
+
+	@Setup
+	public void setup() throws InvalidValidationJson {
+		rules = Documents.allRules();
+		document = Documents.create(shape);
+		documentString = document.toString();
+		plan = ValidationPlan.compile(rules);
+	}
+
+	@Benchmark
+	public boolean validateStrings() {
+		return new JsonValidator().validate(rules, documentString);
+	}
+
+	@Benchmark
+	public boolean validatePlan() {
+		return new JsonValidator().validate(plan, document);
+	}
+
+	@Benchmark
+	public ValidationResult check() {
+		return new JsonValidator().check(plan, document);
+	}
+
+	@Benchmark
+	public ValidationResult evaluateParallelRules() {
+		return new JsonValidator(ValidationMetrics.NONE, new PlanCache(0),
+				null, ForkJoinPool.commonPool()).evaluate(plan, document);
+	}
+}
@@ -0,0 +1,98 @@
+package com.gnof.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.RecordListener;
+import com.gnof.core.ValidationPipeline;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+
+/**
+ * Validates a feed of small documents given as UTF-8 bytes, parsing, indexing
+ * and evaluating each in turn on one thread, then through a
+ * ValidationPipeline with queues of a growing capacity. The score is in
+ * records.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationPipelineBenchmark {
+
+	private static final int RECORDS = 5000;
+
+	@Param({ "16", "1024" })
+	public int capacity;
+
+	private byte[][] records;
+	private ValidationPlan plan;
+	private JsonValidator validator;
+
+	@Setup
+	public void setup() throws InvalidValidationJson {
+		records = new byte[RECORDS][];
+		for (int i = 0; i < RECORDS; i++) {
+			JsonObject record = Documents.create(Documents.SMALL);
+			record.addProperty("id", i);
+			records[i] = record.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		plan = ValidationPlan.compile(Documents.allRules());
+		validator = new JsonValidator();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void sequential(Blackhole blackhole) {
+		for (byte[] record : records) {
+			blackhole.consume(validator.check(plan,
+					new String(record, StandardCharsets.UTF_8)).isPass());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long pipeline(final Blackhole blackhole)
+			throws InterruptedException {
+		RecordListener listener = new RecordListener() {
+			@Override
+			public void validated(long number, ValidationResult result) {
+				blackhole.consume(result.isPass());
+			}
+
+			@Override
+			public void failed(long number, RuntimeException e) {
+				throw e;
+			}
+		};
+		try (ValidationPipeline pipeline = new ValidationPipeline(validator,
+				plan, listener, capacity)) {
+			for (byte[] record : records) {
+				pipeline.submit(record);
+			}
+			return pipeline.submitted();
+		}
+	}
+}
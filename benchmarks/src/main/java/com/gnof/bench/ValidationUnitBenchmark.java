@@ -0,0 +1,60 @@
+package com.gnof.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationUnit;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Constructs the validation unit of each check type, and compiles the plan of
+ * all of them.
+ *
+ * @author kofong
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationUnitBenchmark {
+
+	@Param({ Documents.QUANTITY, Documents.VALUE, Documents.COMPOSITE,
+			Documents.ANCESTOR, Documents.HIERARCHY })
+	public String check;
+
+	private JsonObject rule;
+	private String allRules;
+
+	@Setup
+	public void setup() {
+		rule = new JsonParser().parse(Documents.rule(check)).getAsJsonObject();
+		allRules = Documents.allRules();
+	}
+
+	@Benchmark
+	public ValidationUnit construct() throws InvalidValidationJson {
+		return new ValidationUnit(rule);
+	}
+
+	@Benchmark
+	public ValidationPlan compilePlan() throws InvalidValidationJson {
+		return ValidationPlan.compile(allRules);
+	}
+}
@@ -0,0 +1,437 @@
+package com.gnof.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates every record of a newline delimited JSON file (one JSON object per
+ * line) against a compiled plan, on a pool of worker threads.
+ *
+ * The file is split into chunks of about the same number of bytes, each
+ * ending at the end of a line, and the chunks are validated by the workers at
+ * once. The results are handed to a RecordListener on the thread running the
+ * batch, either in the order of the file or in the order the chunks finish.
+ * Only a couple of chunks per worker are in memory at a time, whatever the
+ * size of the file: a chunk is mapped into memory before it is validated and
+ * unmapped once it is, or once the batch ends if it was never validated.
+ *
+ * Every record is checked with JsonValidator.check, decoded as a stream
+ * straight from the mapped chunk, without copying it. Blank
+ * lines are skipped, a line ending in "\r\n" is read without the "\r", and
+ * the file is read as UTF-8.
+ *
+ * The workers are kept until the validator is closed, one validator can run
+ * any number of batches, one after the other or at once.
+ *
+ * @author kofong
+ *
+ */
+public final class BatchValidator implements Closeable {
+
+	/**
+	 * the default number of bytes of a chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/**
+	 * the number of chunks per worker validated or waiting to be handed to
+	 * the listener at most
+	 */
+	private static final int CHUNKS_PER_WORKER = 2;
+
+	private static final AtomicInteger POOLS = new AtomicInteger();
+
+	private final JsonValidator validator;
+	private final ExecutorService workers;
+	private final int threads;
+	private final int chunkSize;
+
+	/**
+	 * Constructor with a validator of its own and chunks of
+	 * DEFAULT_CHUNK_SIZE bytes
+	 *
+	 * @param threads
+	 *            - the number of workers
+	 */
+	public BatchValidator(int threads) {
+		this(new JsonValidator(), threads, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param validator
+	 *            - what the records are checked with, its metrics are shared
+	 *            by every worker
+	 * @param threads
+	 *            - the number of workers
+	 * @param chunkSize
+	 *            - the number of bytes of a chunk, a chunk is longer when its
+	 *            last line goes past it
+	 */
+	public BatchValidator(JsonValidator validator, int threads, int chunkSize) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads is below 1: "
+					+ threads);
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize is below 1: "
+					+ chunkSize);
+		}
+		this.validator = validator;
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+		final int pool = POOLS.incrementAndGet();
+		this.workers = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "batch-validator-"
+								+ pool + "-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 *
+	 * @return the number of workers
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 *
+	 * @return the number of bytes of a chunk
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Validates every record of a file, handing the results to the listener
+	 * in the order of the records in the file
+	 *
+	 * @param plan
+	 *            - the compiled validations
+	 * @param ndjson
+	 *            - the newline delimited JSON file
+	 * @param listener
+	 *            - what the result of every record is handed to
+	 * @return the number of records
+	 * @throws IOException
+	 *             if the file can't be read, or the thread is interrupted
+	 */
+	public long validate(ValidationPlan plan, Path ndjson,
+			RecordListener listener) throws IOException {
+		return run(plan, ndjson, listener, true);
+	}
+
+	/**
+	 * Validates every record of a file, handing the results of each chunk to
+	 * the listener as soon as the chunk is validated. The records of a chunk
+	 * are in the order of the file, the chunks are not, so a slow chunk
+	 * doesn't hold back the ones after it
+	 *
+	 * @param plan
+	 *            - the compiled validations
+	 * @param ndjson
+	 *            - the newline delimited JSON file
+	 * @param listener
+	 *            - what the result of every record is handed to
+	 * @return the number of records
+	 * @throws IOException
+	 *             if the file can't be read, or the thread is interrupted
+	 */
+	public long validateUnordered(ValidationPlan plan, Path ndjson,
+			RecordListener listener) throws IOException {
+		return run(plan, ndjson, listener, false);
+	}
+
+	/**
+	 * Stops the workers, batches still running fail
+	 */
+	@Override
+	public void close() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Splits a file into chunks, has the workers validate them and hands
+	 * their results to the listener
+	 *
+	 * @param plan
+	 *            - the compiled validations
+	 * @param file
+	 *            - the newline delimited JSON file
+	 * @param listener
+	 *            - what the result of every record is handed to
+	 * @param ordered
+	 *            - whether the chunks are handed over in the order of the
+	 *            file
+	 * @return the number of records
+	 * @throws IOException
+	 *             if the file can't be read, or the thread is interrupted
+	 */
+	private long run(ValidationPlan plan, Path file, RecordListener listener,
+			boolean ordered) throws IOException {
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			long size = channel.size();
+			CompletionService<List<Outcome>> finished = new ExecutorCompletionService<List<Outcome>>(
+					workers);
+			ArrayDeque<ChunkTask> inFlight = new ArrayDeque<ChunkTask>();
+			long records = 0;
+			long start = 0;
+			try {
+				while (start < size || !inFlight.isEmpty()) {
+					// enough chunks to keep every worker busy, and no more in
+					// memory than that
+					while (start < size
+							&& inFlight.size() < threads * CHUNKS_PER_WORKER) {
+						long end = lineEnd(channel,
+								Math.min(start + chunkSize, size), size);
+						ChunkTask task = new ChunkTask(plan, start,
+								channel.map(FileChannel.MapMode.READ_ONLY,
+										start, end - start));
+						inFlight.add(task);
+						task.future = ordered ? workers.submit(task) : finished
+								.submit(task);
+						start = end;
+					}
+					ChunkTask next;
+					if (ordered) {
+						next = inFlight.removeFirst();
+					} else {
+						next = remove(inFlight, finished.take());
+					}
+					for (Outcome outcome : next.future.get()) {
+						outcome.handTo(listener);
+						records++;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				InterruptedIOException interrupted = new InterruptedIOException(
+						"batch interrupted");
+				interrupted.initCause(e);
+				throw interrupted;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				for (ChunkTask task : inFlight) {
+					if (task.future != null) {
+						task.future.cancel(false);
+					}
+					task.release();
+				}
+			}
+			return records;
+		}
+	}
+
+	/**
+	 * Finds the end of the line a position of a file is in
+	 *
+	 * @param channel
+	 *            - the file
+	 * @param position
+	 *            - the position in the file
+	 * @param size
+	 *            - the size of the file
+	 * @return the position after the newline ending the line, or the size of
+	 *         the file if the line is the last
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static long lineEnd(FileChannel channel, long position, long size)
+			throws IOException {
+		if (position >= size) {
+			return size;
+		}
+		// a position right after a newline is the end of the line before it
+		ByteBuffer bytes = ByteBuffer.allocate(8192);
+		long read = position - 1;
+		while (read < size) {
+			bytes.clear();
+			int count = channel.read(bytes, read);
+			if (count < 0) {
+				break;
+			}
+			for (int i = 0; i < count; i++) {
+				if (bytes.get(i) == '\n') {
+					return read + i + 1;
+				}
+			}
+			read += count;
+		}
+		return size;
+	}
+
+	/**
+	 * Removes the task of a future from the chunks in flight
+	 *
+	 * @param inFlight
+	 *            - the chunks in flight
+	 * @param future
+	 *            - the future of one of them
+	 * @return its task
+	 */
+	private static ChunkTask remove(ArrayDeque<ChunkTask> inFlight,
+			Future<List<Outcome>> future) {
+		Iterator<ChunkTask> tasks = inFlight.iterator();
+		while (tasks.hasNext()) {
+			ChunkTask task = tasks.next();
+			if (task.future == future) {
+				tasks.remove();
+				return task;
+			}
+		}
+		throw new IllegalStateException("chunk not in flight");
+	}
+
+	/**
+	 * Checks the records of a chunk, and unmaps it once they're checked
+	 */
+	private final class ChunkTask implements Callable<List<Outcome>> {
+		private final ValidationPlan plan;
+		private final long offset;
+		private final MappedByteBuffer chunk;
+
+		/**
+		 * whether the chunk was taken to be checked or released, it is only
+		 * unmapped by whichever takes it
+		 */
+		private final AtomicBoolean taken = new AtomicBoolean();
+
+		/**
+		 * the future of the task, set by the thread running the batch
+		 */
+		private Future<List<Outcome>> future;
+
+		private ChunkTask(ValidationPlan plan, long offset,
+				MappedByteBuffer chunk) {
+			this.plan = plan;
+			this.offset = offset;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public List<Outcome> call() {
+			List<Outcome> outcomes = new ArrayList<Outcome>();
+			if (!taken.compareAndSet(false, true)) {
+				// the batch ended before the chunk was checked
+				return outcomes;
+			}
+			try {
+				ByteBufferReader reader = new ByteBufferReader();
+				int lineStart = 0;
+				while (lineStart < chunk.limit()) {
+					int lineEnd = lineStart;
+					while (lineEnd < chunk.limit()
+							&& chunk.get(lineEnd) != '\n') {
+						lineEnd++;
+					}
+					int recordEnd = lineEnd;
+					if (recordEnd > lineStart
+							&& chunk.get(recordEnd - 1) == '\r') {
+						recordEnd--;
+					}
+					if (!isBlank(chunk, lineStart, recordEnd)) {
+						ByteBuffer record = chunk.duplicate();
+						record.limit(recordEnd).position(lineStart);
+						outcomes.add(check(offset + lineStart,
+								reader.reset(record)));
+					}
+					lineStart = lineEnd + 1;
+				}
+				return outcomes;
+			} finally {
+				MappedFileReader.unmap(chunk);
+			}
+		}
+
+		/**
+		 * Unmaps the chunk if it was never checked, otherwise leaves it to
+		 * the check
+		 */
+		private void release() {
+			if (taken.compareAndSet(false, true)) {
+				MappedFileReader.unmap(chunk);
+			}
+		}
+
+		private Outcome check(long recordOffset, ByteBufferReader record) {
+			try {
+				return new Outcome(recordOffset, validator.check(plan, record),
+						null);
+			} catch (RuntimeException e) {
+				return new Outcome(recordOffset, null, e);
+			}
+		}
+	}
+
+	private static boolean isBlank(ByteBuffer bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = bytes.get(i);
+			if (b != ' ' && b != '\t' && b != '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The result of a record, or why it couldn't be validated
+	 */
+	private static final class Outcome {
+		private final long offset;
+		private final ValidationResult result;
+		private final RuntimeException failure;
+
+		private Outcome(long offset, ValidationResult result,
+				RuntimeException failure) {
+			this.offset = offset;
+			this.result = result;
+			this.failure = failure;
+		}
+
+		private void handTo(RecordListener listener) {
+			if (failure != null) {
+				listener.failed(offset, failure);
+			} else {
+				listener.validated(offset, result);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.gnof.core;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader of UTF-8 bytes that decodes them straight from their buffer, so they
+ * are parsed without copying them into an array or a string. Only a small
+ * buffer of decoded characters is held, and one reader can read any number of
+ * buffers one after the other.
+ *
+ * Malformed UTF-8 is read as the replacement character. Not thread safe.
+ *
+ * @author kofong
+ *
+ */
+final class ByteBufferReader extends Reader {
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8
+			.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * the characters decoded and not read yet
+	 */
+	private final CharBuffer chars = CharBuffer.allocate(1024);
+
+	/**
+	 * the bytes read, from their position to their limit
+	 */
+	private ByteBuffer bytes;
+
+	/**
+	 * whether every byte has been decoded
+	 */
+	private boolean decoded;
+
+	/**
+	 * Constructor of a reader with nothing to read until it is reset
+	 */
+	ByteBufferReader() {
+		chars.flip();
+		decoded = true;
+	}
+
+	/**
+	 * Starts reading other bytes, whatever was left of the ones before
+	 *
+	 * @param bytes
+	 *            - the bytes to read, from their position to their limit. The
+	 *            position is moved as they are read
+	 * @return this reader
+	 */
+	ByteBufferReader reset(ByteBuffer bytes) {
+		this.bytes = bytes;
+		decoder.reset();
+		chars.clear();
+		chars.flip();
+		decoded = false;
+		return this;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!chars.hasRemaining() && !fill()) {
+			return -1;
+		}
+		int read = Math.min(len, chars.remaining());
+		chars.get(cbuf, off, read);
+		return read;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Decodes the next characters
+	 *
+	 * @return whether any characters were decoded, false at the end of the
+	 *         bytes
+	 */
+	private boolean fill() {
+		chars.clear();
+		if (!decoded) {
+			CoderResult result = decoder.decode(bytes, chars, true);
+			if (result.isUnderflow()) {
+				decoder.flush(chars);
+				decoded = true;
+			}
+		}
+		chars.flip();
+		return chars.hasRemaining();
+	}
+}
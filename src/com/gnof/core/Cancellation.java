@@ -0,0 +1,104 @@
+package com.gnof.core;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Whether an asynchronous validation was cancelled, checked while the JSON is
+ * traversed so a cancelled validation stops instead of running to its end.
+ *
+ * The cancellation of the validation a thread is running is kept by the
+ * thread while it runs it. Indexing and validating check it between objects,
+ * contexts and rules, and throw a CancellationException once it is
+ * cancelled. Threads that aren't running an asynchronous validation have no
+ * cancellation and are never stopped.
+ *
+ * @author kofong
+ *
+ */
+final class Cancellation {
+
+	/**
+	 * the cancellation of the validation each thread is running, null if it
+	 * isn't running an asynchronous validation
+	 */
+	private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<Cancellation>();
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Cancels the validation, it stops at its next check
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 *
+	 * @return whether the validation was cancelled
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Stops the validation if it was cancelled
+	 *
+	 * @throws CancellationException
+	 *             if the validation was cancelled
+	 */
+	void check() {
+		if (cancelled) {
+			throw new CancellationException("validation cancelled");
+		}
+	}
+
+	/**
+	 *
+	 * @return the cancellation of the validation the current thread is
+	 *         running, null if there is none
+	 */
+	static Cancellation current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Stops the validation the current thread is running if it was cancelled
+	 *
+	 * @throws CancellationException
+	 *             if the validation was cancelled
+	 */
+	static void checkpoint() {
+		Cancellation cancellation = CURRENT.get();
+		if (cancellation != null) {
+			cancellation.check();
+		}
+	}
+
+	/**
+	 * Makes a cancellation the one of the current thread
+	 *
+	 * @param cancellation
+	 *            - the cancellation of the validation the thread runs next,
+	 *            null for none
+	 * @return the cancellation the thread had, to give to exit
+	 */
+	static Cancellation enter(Cancellation cancellation) {
+		Cancellation previous = CURRENT.get();
+		CURRENT.set(cancellation);
+		return previous;
+	}
+
+	/**
+	 * Gives the current thread back the cancellation it had before enter
+	 *
+	 * @param previous
+	 *            - what enter returned
+	 */
+	static void exit(Cancellation previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+}
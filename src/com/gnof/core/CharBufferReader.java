@@ -0,0 +1,40 @@
+package com.gnof.core;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reader of characters already decoded, so they're parsed without copying
+ * them into a string. Not thread safe.
+ *
+ * @author kofong
+ *
+ */
+final class CharBufferReader extends Reader {
+
+	private final CharBuffer chars;
+
+	/**
+	 * Constructor
+	 *
+	 * @param chars
+	 *            - the characters to read, from their position to their limit
+	 */
+	CharBufferReader(CharBuffer chars) {
+		this.chars = chars;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (!chars.hasRemaining()) {
+			return -1;
+		}
+		int read = Math.min(len, chars.remaining());
+		chars.get(cbuf, off, read);
+		return read;
+	}
+
+	@Override
+	public void close() {
+	}
+}
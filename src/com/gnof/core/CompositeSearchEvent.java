@@ -0,0 +1,46 @@
+package com.gnof.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the contexts of a composite searched and validated.
+ * Disabled unless a recording enables it
+ * 
+ * @author kofong
+ * 
+ */
+@Name(CompositeSearchEvent.NAME)
+@Label("Composite Context Search")
+@Category(ParseEvent.CATEGORY)
+@Description("The contexts of a composite searched for and validated")
+@Enabled(false)
+@StackTrace(false)
+final class CompositeSearchEvent extends Event {
+
+	static final String NAME = "com.gnof.CompositeSearch";
+
+	@Label("Attribute")
+	@Description("The attribute of the rule")
+	String attribute;
+
+	@Label("Composite Attribute")
+	@Description("The attribute of the composite that finds the contexts")
+	String compositeAttribute;
+
+	@Label("Contexts")
+	@Description("The number of contexts found, -1 if one failed and the search stopped")
+	int contexts;
+
+	@Label("Passed")
+	boolean passed;
+
+	@Label("Document Size")
+	@Description("The number of attributes in the JSON")
+	int documentSize;
+}
@@ -0,0 +1,1092 @@
+package com.gnof.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * An index of a JSON object to validate, built in a single traversal of the
+ * JSON.
+ *
+ * For every key seen anywhere in the JSON the index holds the number of times
+ * it was seen, the values it was seen with and the paths (the keys from the
+ * root) leading to it. The index is built once per JSON and can be shared by
+ * every ValidationUnit validated against that JSON, including the units of
+ * different ValidationPlans.
+ *
+ * An index can also be built for a ValidationPlan. It then only holds the keys
+ * the plan looks for, keeps the values of only the keys the plan expects
+ * values for and the paths of only the keys the plan checks the paths of, so
+ * its memory and the time spent gathering grow with what the plan asks for
+ * rather than with the JSON. It gives the plan the same verdicts and details
+ * as the index of every key. Such an index can be built from the JSON tree, or
+ * while the JSON is read from a JsonReader, without building the JSON tree: a
+ * streamed index only needs memory for the path currently being read apart
+ * from the values it keeps.
+ *
+ * The keys are held in a KeyTable, which counts them without boxing, and the
+ * values and paths of each key in arrays that grow as they are seen. Paths are
+ * nodes of a trie of the paths of the JSON, so every key of an object shares
+ * the node of the object's path.
+ *
+ * The index of a large JSON object can be built on a ForkJoinPool. Objects and
+ * arrays with more members than a threshold are split into tasks indexing a
+ * range of the members each, and the partial indexes of the tasks are merged
+ * in the order of the members, so the index is the same as the one built on a
+ * single thread.
+ *
+ * An index is not modified after it is built and can be shared between
+ * threads.
+ *
+ * @author kofong
+ *
+ */
+public final class DocumentIndex {
+
+	/**
+	 * the default number of members of an object or array above which a
+	 * parallel build splits it
+	 */
+	public static final int DEFAULT_SPLIT_THRESHOLD = 1024;
+
+	/**
+	 * every key in the JSON, counted by the number of times it was seen
+	 */
+	private final KeyTable keys;
+
+	/**
+	 * the data gathered for every key in the JSON, indexed by key id
+	 */
+	private final KeyData[] keyData;
+
+	/**
+	 * the number of attributes in the JSON, indexed or not
+	 */
+	private final int size;
+
+	/**
+	 * Constructor, use build to create an index
+	 *
+	 * @param builder
+	 *            - the builder that gathered the keys
+	 */
+	private DocumentIndex(Builder builder) {
+		this.keys = builder.keys;
+		this.keyData = builder.keyData;
+		this.size = builder.size;
+	}
+
+	/**
+	 * Builds the index of a JSON object
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @return the index of the json
+	 */
+	public static DocumentIndex build(JsonObject json) {
+		return buildTree(json, null);
+	}
+
+	/**
+	 * Builds the index of a JSON object holding only the keys the plan looks
+	 * for. The values of a key are only kept if the plan expects values for
+	 * it, and its paths only if the plan checks its ancestors or hierarchy
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param plan
+	 *            - the plan the index is built for
+	 * @return the index of the json for the plan
+	 */
+	public static DocumentIndex build(JsonObject json, ValidationPlan plan) {
+		return buildTree(json, plan);
+	}
+
+	/**
+	 * Builds the index of a JSON object on the current thread
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param plan
+	 *            - the plan the index is built for, null for every key
+	 * @return the index of the json
+	 */
+	private static DocumentIndex buildTree(JsonObject json, ValidationPlan plan) {
+		IndexEvent event = new IndexEvent();
+		event.begin();
+		Builder builder = new Builder(plan);
+		builder.buildHelper(json);
+		DocumentIndex index = new DocumentIndex(builder);
+		index.commit(event, false);
+		return index;
+	}
+
+	/**
+	 * Builds the index of a JSON object, reporting the time it took and the
+	 * size of the JSON to the metrics
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param metrics
+	 *            - the metrics to report to
+	 * @return the index of the json
+	 */
+	static DocumentIndex build(JsonObject json, ValidationMetrics metrics) {
+		return build(json, null, null, metrics);
+	}
+
+	/**
+	 * Builds the index of a JSON object on a pool of threads, splitting the
+	 * objects and arrays with more than DEFAULT_SPLIT_THRESHOLD members
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param pool
+	 *            - the pool the index is built on
+	 * @return the index of the json, the same as build(json) returns
+	 */
+	public static DocumentIndex build(JsonObject json, ForkJoinPool pool) {
+		return build(json, pool, DEFAULT_SPLIT_THRESHOLD);
+	}
+
+	/**
+	 * Builds the index of a JSON object on a pool of threads
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param pool
+	 *            - the pool the index is built on
+	 * @param splitThreshold
+	 *            - the number of members of an object or array above which
+	 *            it is split, each task indexes at most that many members
+	 * @return the index of the json, the same as build(json) returns
+	 */
+	public static DocumentIndex build(JsonObject json, ForkJoinPool pool,
+			int splitThreshold) {
+		return buildParallel(json, null, pool, splitThreshold);
+	}
+
+	/**
+	 * Builds the index of a JSON object for a plan on a pool of threads, like
+	 * build(json, plan) does on the current thread
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param plan
+	 *            - the plan the index is built for
+	 * @param pool
+	 *            - the pool the index is built on
+	 * @param splitThreshold
+	 *            - the number of members of an object or array above which
+	 *            it is split, each task indexes at most that many members
+	 * @return the index of the json for the plan, the same as build(json,
+	 *         plan) returns
+	 */
+	public static DocumentIndex build(JsonObject json, ValidationPlan plan,
+			ForkJoinPool pool, int splitThreshold) {
+		return buildParallel(json, plan, pool, splitThreshold);
+	}
+
+	/**
+	 * Builds the index of a JSON object on a pool of threads
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param plan
+	 *            - the plan the index is built for, null for every key
+	 * @param pool
+	 *            - the pool the index is built on
+	 * @param splitThreshold
+	 *            - the number of members of an object or array above which
+	 *            it is split
+	 * @return the index of the json
+	 */
+	private static DocumentIndex buildParallel(JsonObject json,
+			ValidationPlan plan, ForkJoinPool pool, int splitThreshold) {
+		if (splitThreshold < 1) {
+			throw new IllegalArgumentException("splitThreshold is below 1: "
+					+ splitThreshold);
+		}
+		IndexEvent event = new IndexEvent();
+		event.begin();
+		Builder builder = pool.invoke(new IndexTask(
+				Collections.<String> emptyList(), json.entrySet().toArray(),
+				true, plan, splitThreshold, Cancellation.current()));
+		DocumentIndex index = new DocumentIndex(builder);
+		index.commit(event, false);
+		return index;
+	}
+
+	/**
+	 * Builds the index of a JSON object, on a pool of threads if one is
+	 * given, reporting the time it took and the size of the JSON to the
+	 * metrics
+	 *
+	 * @param json
+	 *            - the json to index
+	 * @param plan
+	 *            - the plan the index is built for, null for every key
+	 * @param pool
+	 *            - the pool the index is built on, null to build it on the
+	 *            current thread
+	 * @param metrics
+	 *            - the metrics to report to
+	 * @return the index of the json
+	 */
+	static DocumentIndex build(JsonObject json, ValidationPlan plan,
+			ForkJoinPool pool, ValidationMetrics metrics) {
+		long start = metrics.isEnabled() ? System.nanoTime() : 0;
+		DocumentIndex index = pool == null ? buildTree(json, plan)
+				: buildParallel(json, plan, pool, DEFAULT_SPLIT_THRESHOLD);
+		if (metrics.isEnabled()) {
+			metrics.documentIndexed(index.size(), System.nanoTime() - start);
+		}
+		return index;
+	}
+
+	/**
+	 * Builds the index of a JSON object while it is read, holding only the
+	 * keys the plan looks for. The values of a key are only kept if the plan
+	 * expects values for it, and its paths only if the plan checks its
+	 * ancestors or hierarchy. Every key of an object is read, so an object
+	 * with a duplicated key is indexed with every occurrence of it
+	 *
+	 * @param reader
+	 *            - the reader, positioned before the JSON object
+	 * @param plan
+	 *            - the plan the index is built for
+	 * @return the index of the json, the reader is positioned after it
+	 * @throws IOException
+	 *             if the JSON can't be read or is malformed
+	 * @throws JsonSyntaxException
+	 *             if the JSON isn't an object
+	 */
+	public static DocumentIndex build(JsonReader reader, ValidationPlan plan)
+			throws IOException {
+		IndexEvent event = new IndexEvent();
+		event.begin();
+		JsonToken token = reader.peek();
+		if (token != JsonToken.BEGIN_OBJECT) {
+			// the reader would throw an IllegalStateException
+			throw new JsonSyntaxException("Expected a JSON object but was "
+					+ token);
+		}
+		Builder builder = new Builder(plan);
+		builder.streamHelper(reader);
+		DocumentIndex index = new DocumentIndex(builder);
+		index.commit(event, true);
+		return index;
+	}
+
+	/**
+	 * Commits the flight recorder event of the index if it is recorded
+	 *
+	 * @param event
+	 *            - the event, begun before the index was built
+	 * @param streamed
+	 *            - whether the index was built while the JSON was read
+	 */
+	private void commit(IndexEvent event, boolean streamed) {
+		if (event.shouldCommit()) {
+			event.documentSize = size;
+			event.keys = keys.size();
+			event.streamed = streamed;
+			event.commit();
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of attributes in the JSON, every occurrence of a key
+	 *         counted, including the keys that weren't indexed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @return whether the key is anywhere in the JSON
+	 */
+	public boolean hasKey(String key) {
+		return keys.id(key) != -1;
+	}
+
+	/**
+	 *
+	 * @return every key in the JSON, only the keys the plan looks for if the
+	 *         index was built for a plan
+	 */
+	public Set<String> keys() {
+		HashSet<String> keySet = new HashSet<String>();
+		for (int id = 0; id < keys.size(); id++) {
+			keySet.add(keys.key(id));
+		}
+		return Collections.unmodifiableSet(keySet);
+	}
+
+	/**
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @return the number of times the key was seen, 0 if it wasn't
+	 */
+	public int count(String key) {
+		int id = keys.id(key);
+		return id == -1 ? 0 : keys.counter(id);
+	}
+
+	/**
+	 * The values the key was seen with, in the order they were seen. Arrays
+	 * of primitives are listed both as the array and as each of the
+	 * primitives in it
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @return a new JsonArray of the values of the key, empty if it wasn't
+	 *         seen
+	 */
+	public JsonArray values(String key) {
+		JsonArray values = new JsonArray();
+		int id = keys.id(key);
+		if (id != -1) {
+			KeyData data = keyData[id];
+			for (int i = 0; i < data.valueCount; i++) {
+				values.add(data.values[i]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * The values the key was seen with, like values, without copying them
+	 * into a JsonArray
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @return an unmodifiable list of the values of the key, empty if it
+	 *         wasn't seen
+	 */
+	List<JsonElement> valueList(String key) {
+		int id = keys.id(key);
+		if (id == -1) {
+			return Collections.emptyList();
+		}
+		KeyData data = keyData[id];
+		return Collections.unmodifiableList(Arrays.asList(data.values)
+				.subList(0, data.valueCount));
+	}
+
+	/**
+	 * The paths to the key that aren't nested inside another occurrence of
+	 * the same key, optionally only those where the key has one of the values
+	 * given
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @param value
+	 *            - null for every path, otherwise a string or a list of
+	 *            strings the key has to have
+	 * @return a list of paths (represented in lists) to the key
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<ArrayList<String>> paths(String key, Object value) {
+		Multiset values = null;
+		if (value instanceof ArrayList) {
+			values = new Multiset((ArrayList<Object>) value);
+		} else if (value != null) {
+			values = new Multiset(Collections.singletonList(value));
+		}
+		ArrayList<ArrayList<String>> found = new ArrayList<ArrayList<String>>();
+		for (PathNode path : pathNodes(key, values)) {
+			found.add(path.toList());
+		}
+		return found;
+	}
+
+	/**
+	 * The paths to the key like paths, as nodes of the trie of the paths of
+	 * the JSON
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @param values
+	 *            - null for every path, otherwise the values the key has to
+	 *            have one of, hashed so each path is matched in constant time
+	 * @return a list of paths to the key
+	 */
+	ArrayList<PathNode> pathNodes(String key, Multiset values) {
+		ArrayList<PathNode> found = new ArrayList<PathNode>();
+		int id = keys.id(key);
+		if (id == -1) {
+			return found;
+		}
+		KeyData data = keyData[id];
+
+		for (int i = 0; i < data.pathCount; i++) {
+			if (values == null
+					|| values.contains(valueString(data.pathValues[i]))) {
+				found.add(data.paths[i]);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The string a value is compared with when looking for a key with a
+	 * specific value
+	 *
+	 * @param value
+	 *            - the value of the key
+	 * @return the string representation of the value, null if it has none
+	 *         or it isn't kept
+	 */
+	private static String valueString(JsonElement value) {
+		if (value == null) {
+			return null;
+		}
+		if (value.isJsonPrimitive()) {
+			return value.getAsString();
+		}
+		// a single element array has the string of that element
+		if (value.isJsonArray() && value.getAsJsonArray().size() == 1) {
+			return valueString(value.getAsJsonArray().get(0));
+		}
+		return null;
+	}
+
+	/**
+	 * Gathers the keys of a JSON and their counts, values and paths while it
+	 * is traversed
+	 */
+	private static final class Builder {
+
+		/**
+		 * the keys gathered so far, counted by the number of times they were
+		 * seen
+		 */
+		private final KeyTable keys = new KeyTable();
+
+		/**
+		 * the data gathered so far, indexed by key id
+		 */
+		private KeyData[] keyData = new KeyData[16];
+
+		/**
+		 * the keys in the history, counted by the number of times they are in
+		 * it
+		 */
+		private final KeyTable openKeys = new KeyTable();
+
+		/**
+		 * the path so far to the value being traversed
+		 */
+		private PathNode history = PathNode.root();
+
+		/**
+		 * the number of attributes traversed so far
+		 */
+		private int size;
+
+		/**
+		 * the plan the keys are gathered for, null for every key
+		 */
+		private final ValidationPlan plan;
+
+		/**
+		 * the number of members of an object or array above which it is
+		 * split into tasks, 0 to never split it
+		 */
+		private final int splitThreshold;
+
+		/**
+		 * the cancellation of the validation the index is built for, null if
+		 * it can't be cancelled
+		 */
+		private final Cancellation cancellation;
+
+		/**
+		 * Constructor
+		 *
+		 * @param plan
+		 *            - the plan the keys are gathered for, null for every key
+		 */
+		private Builder(ValidationPlan plan) {
+			this.plan = plan;
+			this.splitThreshold = 0;
+			this.cancellation = Cancellation.current();
+		}
+
+		/**
+		 * Constructor of the builder of a task of a parallel build, gathering
+		 * the keys below a path
+		 *
+		 * @param plan
+		 *            - the plan the keys are gathered for, null for every key
+		 * @param splitThreshold
+		 *            - the number of members of an object or array above
+		 *            which it is split into tasks
+		 * @param path
+		 *            - the keys from the root to the members the task
+		 *            traverses
+		 * @param cancellation
+		 *            - the cancellation of the validation the index is built
+		 *            for, null if it can't be cancelled
+		 */
+		private Builder(ValidationPlan plan, int splitThreshold,
+				List<String> path, Cancellation cancellation) {
+			this.plan = plan;
+			this.splitThreshold = splitThreshold;
+			this.cancellation = cancellation;
+			// the history and open keys are what they'd be at the members
+			// when traversed on a single thread
+			for (String key : path) {
+				openKey(key);
+			}
+		}
+
+		/**
+		 * Helper method to traverse the JSON object and gather the keys
+		 * viewed and their counts, values and paths
+		 *
+		 * @param json
+		 *            - the json to traverse
+		 */
+		private void buildHelper(JsonObject json) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			Set<Entry<String, JsonElement>> entries = json.entrySet();
+			if (splits(entries.size())) {
+				merge(new IndexTask(history.toList(), entries.toArray(), true,
+						plan, splitThreshold, cancellation).invoke());
+				return;
+			}
+			for (Entry<String, JsonElement> e : entries) {
+				buildEntry(e.getKey(), e.getValue());
+			}
+		}
+
+		/**
+		 * Helper method to gather an attribute of an object and the keys
+		 * below it
+		 *
+		 * @param currKey
+		 *            - the key of the attribute
+		 * @param value
+		 *            - the value of the attribute
+		 */
+		private void buildEntry(String currKey, JsonElement value) {
+			size++;
+
+			KeyData currData = null;
+			if (plan == null || plan.attributes().contains(currKey)) {
+				// a key nested in the same key isn't a path to it, and for a
+				// plan only the values and paths it looks at are kept
+				boolean nested = isOpen(currKey);
+				boolean values = keepsValues(currKey);
+				PathNode path = nested || !keepsPaths(currKey) ? null
+						: history;
+				KeyData data = record(currKey, values ? value : null, path);
+				// the primitives of an array are values of its key too
+				currData = values ? data : null;
+			}
+
+			// handle recursive cases
+			if (value.isJsonObject() || value.isJsonArray()) {
+				buildChildren(currKey, value, currData);
+			}
+		}
+
+		/**
+		 * Helper method to traverse the value of a key when it is an object
+		 * or an array
+		 *
+		 * @param key
+		 *            - the key of the value
+		 * @param value
+		 *            - the object or array
+		 * @param data
+		 *            - the data of the key, null if it isn't gathered
+		 */
+		private void buildChildren(String key, JsonElement value,
+				KeyData data) {
+			int open = openKey(key);
+
+			if (value.isJsonObject()) {
+				buildHelper((JsonObject) value);
+			} else if (splits(((JsonArray) value).size())) {
+				JsonArray array = (JsonArray) value;
+				JsonElement[] elements = new JsonElement[array.size()];
+				for (int i = 0; i < elements.length; i++) {
+					elements[i] = array.get(i);
+				}
+				merge(new IndexTask(history.toList(), elements, false, plan,
+						splitThreshold, cancellation).invoke());
+			} else {
+				for (JsonElement j : (JsonArray) value) {
+					buildElement(j, data);
+				}
+			}
+
+			closeKey(open);
+		}
+
+		/**
+		 * Helper method to gather an element of an array and the keys below
+		 * it
+		 *
+		 * @param j
+		 *            - the element
+		 * @param data
+		 *            - the data of the key of the array, null if it isn't
+		 *            gathered
+		 */
+		private void buildElement(JsonElement j, KeyData data) {
+			// if there's a list of primitives, like strings or ints
+			if (j.isJsonPrimitive()) {
+				if (data != null) {
+					data.addValue(j);
+				}
+			} else if (j.isJsonObject()) {
+				buildHelper((JsonObject) j);
+			}
+		}
+
+		/**
+		 *
+		 * @param key
+		 *            - a key gathered
+		 * @return whether the values of the key are kept
+		 */
+		private boolean keepsValues(String key) {
+			return plan == null || plan.valueAttributes().contains(key);
+		}
+
+		/**
+		 *
+		 * @param key
+		 *            - a key gathered
+		 * @return whether the paths to the key are kept
+		 */
+		private boolean keepsPaths(String key) {
+			return plan == null || plan.pathAttributes().contains(key);
+		}
+
+		/**
+		 *
+		 * @param members
+		 *            - the number of members of an object or array
+		 * @return whether the object or array is split into tasks
+		 */
+		private boolean splits(int members) {
+			return splitThreshold > 0 && members > splitThreshold;
+		}
+
+		/**
+		 * Adds what another builder gathered after what this one gathered so
+		 * far, as if this one had gone on to traverse what the other one did
+		 *
+		 * @param other
+		 *            - the builder of the members that come next
+		 */
+		private void merge(Builder other) {
+			size += other.size;
+			for (int otherId = 0; otherId < other.keys.size(); otherId++) {
+				int id = keys.add(other.keys.key(otherId));
+				keys.increase(id, other.keys.counter(otherId));
+				data(id).addAll(other.keyData[otherId]);
+			}
+		}
+
+		/**
+		 * Helper method to read a JSON object from a reader and gather the
+		 * keys the plan looks for. Values the plan expects are read as a tree
+		 * and gathered like buildHelper does, everything else is only read as
+		 * tokens
+		 *
+		 * @param reader
+		 *            - the reader, positioned before the object
+		 * @throws IOException
+		 *             if the JSON can't be read or is malformed
+		 */
+		private void streamHelper(JsonReader reader) throws IOException {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String currKey = reader.nextName();
+				size++;
+				JsonToken token = reader.peek();
+				boolean container = token == JsonToken.BEGIN_OBJECT
+						|| token == JsonToken.BEGIN_ARRAY;
+
+				if (!plan.attributes().contains(currKey)) {
+					if (container) {
+						streamChildren(currKey, reader);
+					} else {
+						reader.skipValue();
+					}
+					continue;
+				}
+
+				// a key nested in the same key isn't a path to it, and paths
+				// are only kept for the keys the plan checks the paths of
+				boolean nested = isOpen(currKey);
+				PathNode path = nested || !keepsPaths(currKey) ? null : history;
+
+				if (keepsValues(currKey)) {
+					// the value is kept, so there's no saving in streaming it
+					JsonElement value = new JsonParser().parse(reader);
+					KeyData currData = record(currKey, value, path);
+					if (container) {
+						buildChildren(currKey, value, currData);
+					}
+				} else {
+					record(currKey, null, path);
+					if (container) {
+						streamChildren(currKey, reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+			}
+			reader.endObject();
+		}
+
+		/**
+		 * Helper method to read the value of a key from a reader when it is
+		 * an object or an array
+		 *
+		 * @param key
+		 *            - the key of the value
+		 * @param reader
+		 *            - the reader, positioned before the object or array
+		 * @throws IOException
+		 *             if the JSON can't be read or is malformed
+		 */
+		private void streamChildren(String key, JsonReader reader)
+				throws IOException {
+			int open = openKey(key);
+
+			if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+				streamHelper(reader);
+			} else {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					// primitives only matter to values, which aren't kept
+					// here, and arrays in arrays aren't traversed
+					if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+						streamHelper(reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endArray();
+			}
+
+			closeKey(open);
+		}
+
+		/**
+		 * Records an occurrence of a key
+		 *
+		 * @param key
+		 *            - the key seen
+		 * @param value
+		 *            - the value it was seen with, null if it isn't kept
+		 * @param path
+		 *            - the path to the key, null if it is nested in the same
+		 *            key
+		 * @return the data of the key
+		 */
+		private KeyData record(String key, JsonElement value, PathNode path) {
+			int id = keys.add(key);
+			keys.increment(id);
+			KeyData data = data(id);
+			if (value != null) {
+				data.addValue(value);
+			}
+			if (path != null) {
+				data.addPath(path, value);
+			}
+			return data;
+		}
+
+		/**
+		 * The data of a key, created if the key wasn't seen yet
+		 *
+		 * @param id
+		 *            - the id of the key in keys
+		 * @return the data of the key
+		 */
+		private KeyData data(int id) {
+			if (id == keyData.length) {
+				keyData = Arrays.copyOf(keyData, id * 2);
+			}
+			KeyData data = keyData[id];
+			if (data == null) {
+				data = new KeyData();
+				keyData[id] = data;
+			}
+			return data;
+		}
+
+		/**
+		 *
+		 * @param key
+		 *            - the key to look for
+		 * @return whether the key is in the history
+		 */
+		private boolean isOpen(String key) {
+			int id = openKeys.id(key);
+			return id != -1 && openKeys.counter(id) > 0;
+		}
+
+		/**
+		 * Adds a key to the history before its value is traversed
+		 *
+		 * @param key
+		 *            - the key
+		 * @return the id of the key in openKeys
+		 */
+		private int openKey(String key) {
+			// an index for a plan only keeps the paths that were recorded
+			history = plan == null ? history.child(key) : history
+					.newChild(key);
+			int id = openKeys.add(key);
+			openKeys.increment(id);
+			return id;
+		}
+
+		/**
+		 * Removes a key from the history after its value was traversed
+		 *
+		 * @param open
+		 *            - what openKey returned for the key
+		 */
+		private void closeKey(int open) {
+			openKeys.decrement(open);
+			history = history.parent();
+		}
+	}
+
+	/**
+	 * The values and paths gathered for a single key, its count is kept in
+	 * the KeyTable
+	 */
+	private static final class KeyData {
+		/**
+		 * the values the key was seen with, empty if they aren't kept
+		 */
+		private JsonElement[] values = new JsonElement[2];
+
+		/**
+		 * the number of values
+		 */
+		private int valueCount;
+
+		/**
+		 * the paths to the key
+		 */
+		private PathNode[] paths = new PathNode[2];
+
+		/**
+		 * the value of the key at each of the paths, null where the value
+		 * isn't kept
+		 */
+		private JsonElement[] pathValues = new JsonElement[2];
+
+		/**
+		 * the number of paths
+		 */
+		private int pathCount;
+
+		/**
+		 * Adds a value the key was seen with
+		 *
+		 * @param value
+		 *            - the value
+		 */
+		private void addValue(JsonElement value) {
+			if (valueCount == values.length) {
+				values = Arrays.copyOf(values, valueCount * 2);
+			}
+			values[valueCount++] = value;
+		}
+
+		/**
+		 * Adds a path to the key
+		 *
+		 * @param path
+		 *            - the path
+		 * @param value
+		 *            - the value of the key at the path, null if it isn't
+		 *            kept
+		 */
+		private void addPath(PathNode path, JsonElement value) {
+			if (pathCount == paths.length) {
+				paths = Arrays.copyOf(paths, pathCount * 2);
+				pathValues = Arrays.copyOf(pathValues, pathCount * 2);
+			}
+			paths[pathCount] = path;
+			pathValues[pathCount++] = value;
+		}
+
+		/**
+		 * Adds the values and paths of other data after these
+		 *
+		 * @param other
+		 *            - the data to add
+		 */
+		private void addAll(KeyData other) {
+			if (valueCount + other.valueCount > values.length) {
+				values = Arrays.copyOf(values, Math.max(values.length * 2,
+						valueCount + other.valueCount));
+			}
+			System.arraycopy(other.values, 0, values, valueCount,
+					other.valueCount);
+			valueCount += other.valueCount;
+			if (pathCount + other.pathCount > paths.length) {
+				int capacity = Math.max(paths.length * 2, pathCount
+						+ other.pathCount);
+				paths = Arrays.copyOf(paths, capacity);
+				pathValues = Arrays.copyOf(pathValues, capacity);
+			}
+			System.arraycopy(other.paths, 0, paths, pathCount, other.pathCount);
+			System.arraycopy(other.pathValues, 0, pathValues, pathCount,
+					other.pathCount);
+			pathCount += other.pathCount;
+		}
+	}
+
+	/**
+	 * Gathers the keys of a range of the members of an object or array, the
+	 * entries of an object or the elements of an array, splitting the range
+	 * in two tasks while it has more members than the split threshold
+	 */
+	private static final class IndexTask extends RecursiveTask<Builder> {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * the keys from the root to the object or array
+		 */
+		private final List<String> path;
+
+		/**
+		 * the entries of the object or the elements of the array
+		 */
+		private final Object[] members;
+
+		/**
+		 * whether the members are the entries of an object
+		 */
+		private final boolean entries;
+
+		/**
+		 * the range of the members gathered
+		 */
+		private final int from;
+		private final int to;
+
+		/**
+		 * the plan the keys are gathered for, null for every key
+		 */
+		private final ValidationPlan plan;
+
+		private final int splitThreshold;
+
+		/**
+		 * the cancellation of the validation the index is built for, null if
+		 * it can't be cancelled
+		 */
+		private final Cancellation cancellation;
+
+		/**
+		 * Constructor of the task of every member
+		 *
+		 * @param path
+		 *            - the keys from the root to the object or array
+		 * @param members
+		 *            - the entries of the object or the elements of the array
+		 * @param entries
+		 *            - whether the members are the entries of an object
+		 * @param plan
+		 *            - the plan the keys are gathered for, null for every key
+		 * @param splitThreshold
+		 *            - the number of members above which a range is split
+		 * @param cancellation
+		 *            - the cancellation of the validation the index is built
+		 *            for, null if it can't be cancelled
+		 */
+		private IndexTask(List<String> path, Object[] members,
+				boolean entries, ValidationPlan plan, int splitThreshold,
+				Cancellation cancellation) {
+			this(path, members, entries, 0, members.length, plan,
+					splitThreshold, cancellation);
+		}
+
+		private IndexTask(List<String> path, Object[] members,
+				boolean entries, int from, int to, ValidationPlan plan,
+				int splitThreshold, Cancellation cancellation) {
+			this.path = path;
+			this.members = members;
+			this.entries = entries;
+			this.from = from;
+			this.to = to;
+			this.plan = plan;
+			this.splitThreshold = splitThreshold;
+			this.cancellation = cancellation;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected Builder compute() {
+			if (to - from > splitThreshold) {
+				int middle = (from + to) >>> 1;
+				IndexTask second = new IndexTask(path, members, entries,
+						middle, to, plan, splitThreshold, cancellation);
+				second.fork();
+				Builder first = new IndexTask(path, members, entries, from,
+						middle, plan, splitThreshold, cancellation).compute();
+				first.merge(second.join());
+				return first;
+			}
+			Builder builder = new Builder(plan, splitThreshold, path,
+					cancellation);
+			// the primitives of an array are values of its key, if they are
+			// kept, otherwise the key isn't added as it may not be gathered
+			String arrayKey = entries ? null : path.get(path.size() - 1);
+			KeyData data = entries || !builder.keepsValues(arrayKey) ? null
+					: builder.data(builder.keys.add(arrayKey));
+			for (int i = from; i < to; i++) {
+				if (entries) {
+					Entry<String, JsonElement> e = (Entry<String, JsonElement>) members[i];
+					builder.buildEntry(e.getKey(), e.getValue());
+				} else {
+					builder.buildElement((JsonElement) members[i], data);
+				}
+			}
+			return builder;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.gnof.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a DocumentIndex built, gathering the keys of a JSON
+ * with their counts, values and paths. Disabled unless a recording enables it
+ * 
+ * @author kofong
+ * 
+ */
+@Name(IndexEvent.NAME)
+@Label("JSON Index")
+@Category(ParseEvent.CATEGORY)
+@Description("The keys of a JSON gathered with their counts, values and paths")
+@Enabled(false)
+@StackTrace(false)
+final class IndexEvent extends Event {
+
+	static final String NAME = "com.gnof.Index";
+
+	@Label("Document Size")
+	@Description("The number of attributes in the JSON")
+	int documentSize;
+
+	@Label("Keys")
+	@Description("The number of distinct keys indexed")
+	int keys;
+
+	@Label("Streamed")
+	@Description("Whether the JSON was indexed while it was read")
+	boolean streamed;
+}
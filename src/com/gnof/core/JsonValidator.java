@@ -1,12 +1,33 @@
 package com.gnof.core;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import com.gnof.exceptions.InvalidValidationJson;
-import com.google.gson.JsonArray;
+import com.gnof.metrics.ValidationMetrics;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * This is a Utility library meant to make JSON operations, particularly
@@ -88,6 +109,12 @@ public class JsonValidator {
 
 	public static final String VALIDATION_RESULT = "validation-result";
 	public static final String VALIDATION_DETAILS = "validation-details";
+
+	/**
+	 * the most asynchronous validations waiting for a thread when the runtime
+	 * has no virtual threads
+	 */
+	public static final int ASYNC_QUEUE_CAPACITY = 4096;
 	
 	/**
 	 * result of the last validate run 
@@ -95,9 +122,37 @@ public class JsonValidator {
 	private boolean lastResult;
 	
 	/**
-	 * validation detail object of the last validation run
+	 * the result of the last validation run, its details are only built when
+	 * they are asked for
+	 */
+	private ValidationResult lastValidation;
+
+	/**
+	 * what the validations are reported to
+	 */
+	private final ValidationMetrics metrics;
+
+	/**
+	 * the plans of the validation json given as text or elements
+	 */
+	private final PlanCache plans;
+
+	/**
+	 * the pool JSON objects are indexed on, null to index them on the thread
+	 * validating them
 	 */
-	private HashMap<JsonObject, JsonObject> validationDetail;
+	private final ForkJoinPool indexPool;
+
+	/**
+	 * the pool the rules of a plan are evaluated on, null to evaluate them
+	 * one after the other on the thread validating
+	 */
+	private final ForkJoinPool rulePool;
+
+	/**
+	 * the plan cache of validators that aren't given one
+	 */
+	private static final PlanCache SHARED_PLANS = new PlanCache(256);
 	
 	/**
 	 * 
@@ -110,18 +165,130 @@ public class JsonValidator {
 	/**
 	 * JsonObject Key is the Validation Run
 	 * JsonObject Value is the result of the validation run
-	 * @return HashMap of validation details of last validation run
+	 * @return a new HashMap of validation details of last validation run,
+	 *         empty if none was run
 	 */
 	public HashMap<JsonObject, JsonObject> getLastValidationDetail() {
-		return validationDetail;
+		ValidationResult last = lastValidation;
+		if (last == null) {
+			return new HashMap<JsonObject, JsonObject>();
+		}
+		return last.toDetailMap();
+	}
+
+	/**
+	 * 
+	 * @return what the validations are reported to
+	 */
+	public ValidationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * 
+	 * @return the cache of the plans of validation json given as text or
+	 *         elements
+	 */
+	public PlanCache getPlanCache() {
+		return plans;
+	}
+
+	/**
+	 * 
+	 * @return the pool JSON objects are indexed on, null if they are indexed
+	 *         on the thread validating them
+	 */
+	public ForkJoinPool getIndexPool() {
+		return indexPool;
+	}
+
+	/**
+	 * 
+	 * @return the pool the rules of a plan are evaluated on, null if they are
+	 *         evaluated on the thread validating
+	 */
+	public ForkJoinPool getRulePool() {
+		return rulePool;
 	}
 
 	/**
 	 * Default Constructor
 	 */
 	public JsonValidator() {
+		this(ValidationMetrics.NONE);
+	}
+
+	/**
+	 * Constructor reporting every validation, evaluation and check to metrics
+	 * 
+	 * @param metrics
+	 *            - what the validations are reported to, shared by every
+	 *            thread using the validator
+	 */
+	public JsonValidator(ValidationMetrics metrics) {
+		this(metrics, SHARED_PLANS);
+	}
+
+	/**
+	 * Constructor compiling validation json given as text or elements through
+	 * a cache of plans. Validators that aren't given a cache share one of 256
+	 * plans
+	 * 
+	 * @param metrics
+	 *            - what the validations are reported to, shared by every
+	 *            thread using the validator
+	 * @param plans
+	 *            - the cache of plans
+	 */
+	public JsonValidator(ValidationMetrics metrics, PlanCache plans) {
+		this(metrics, plans, null);
+	}
+
+	/**
+	 * Constructor indexing the JSON objects to validate on a pool of
+	 * threads, so the index of a large JSON is built in less time. The
+	 * results are the same as those of a validator indexing on one thread.
+	 * Streamed JSON and the indexes given to validate are not affected
+	 * 
+	 * @param metrics
+	 *            - what the validations are reported to, shared by every
+	 *            thread using the validator
+	 * @param plans
+	 *            - the cache of plans
+	 * @param indexPool
+	 *            - the pool the JSON objects are indexed on, null to index
+	 *            them on the thread validating them
+	 */
+	public JsonValidator(ValidationMetrics metrics, PlanCache plans,
+			ForkJoinPool indexPool) {
+		this(metrics, plans, indexPool, null);
+	}
+
+	/**
+	 * Constructor evaluating the rules of a plan at once on a pool of
+	 * threads, against the same JSON and index, so a plan of many expensive
+	 * rules takes less time. The results, details included, are the same as
+	 * those of a validator evaluating the rules one after the other
+	 * 
+	 * @param metrics
+	 *            - what the validations are reported to, shared by every
+	 *            thread using the validator
+	 * @param plans
+	 *            - the cache of plans
+	 * @param indexPool
+	 *            - the pool the JSON objects are indexed on, null to index
+	 *            them on the thread validating them
+	 * @param rulePool
+	 *            - the pool the rules are evaluated on, null to evaluate them
+	 *            one after the other on the thread validating
+	 */
+	public JsonValidator(ValidationMetrics metrics, PlanCache plans,
+			ForkJoinPool indexPool, ForkJoinPool rulePool) {
 		lastResult = false;
-		validationDetail = new HashMap<JsonObject, JsonObject>();		
+		this.metrics = metrics;
+		this.plans = plans;
+		this.indexPool = indexPool;
+		this.rulePool = rulePool;
 	}
 
 	/**
@@ -135,10 +302,15 @@ public class JsonValidator {
 	 */
 	public boolean validate(String validateJsonString,
 			String toValidateJsonString) {		
-		JsonParser parser = new JsonParser();
-		JsonElement validateJson = parser.parse(validateJsonString);
-		JsonObject toValidate = (JsonObject) parser.parse(toValidateJsonString);		
-		return validate(validateJson, toValidate);
+		ValidationPlan plan;
+		try {
+			// a validation json seen before isn't parsed again
+			plan = plans.get(validateJsonString);
+		} catch (InvalidValidationJson e) {
+			System.out.println(e.getMessage());
+			return false;
+		}
+		return validate(plan, toValidateJsonString);
 	}
 
 	/**
@@ -151,51 +323,997 @@ public class JsonValidator {
 	 * @return - Validation pass / fail
 	 */
 	public boolean validate(JsonElement validationJson, JsonObject toValidate) {
-		JsonArray validationJsons = new JsonArray();
-		
-		// Checking for single validation or a collection of them
-		if (validationJson instanceof JsonArray)
-		{
-			validationJsons = (JsonArray) validationJson;
+		ValidationPlan plan;
+		try {
+			// looked up by its text, so a changed element gets a new plan
+			plan = plans.get(validationJson);
+		} catch (InvalidValidationJson e) {
+			System.out.println(e.getMessage());
+			return false;
 		}
-		else if (validationJson instanceof JsonObject)
-		{
-			validationJsons.add(validationJson);
+		return validate(plan, toValidate);
+	}
+
+	/**
+	 * Validate call with a compiled plan and string json representation
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @return - Validation pass / fail
+	 */
+	public boolean validate(ValidationPlan plan, String toValidateJsonString) {
+		return record(plan, evaluate(plan, toValidateJsonString));
+	}
+
+	/**
+	 * Validates a JSON read from a stream against a compiled plan. The JSON
+	 * isn't parsed into a tree, only the data of the attributes the plan looks
+	 * for is kept while it is read. Composite validations need the whole
+	 * JSON, so a plan with composites parses it into a tree first
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - reader of the JSON object to validate
+	 * @return - Validation pass / fail
+	 * @throws JsonIOException
+	 *             if the JSON can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public boolean validate(ValidationPlan plan, Reader toValidate) {
+		return record(plan, evaluate(plan, toValidate));
+	}
+
+	/**
+	 * Validates a JSON file against a compiled plan. The file is memory mapped
+	 * and read like validate does a stream, so unless the plan has composite
+	 * validations the heap used doesn't grow with the size of the file
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @return - Validation pass / fail
+	 * @throws JsonIOException
+	 *             if the file can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public boolean validate(ValidationPlan plan, Path toValidate) {
+		return record(plan, evaluate(plan, toValidate));
+	}
+
+	/**
+	 * Validates that a JSON is meeting the criteria of a compiled plan. The
+	 * plan is not modified, so it can be reused for any number of JSONs
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @return - Validation pass / fail
+	 */
+	public boolean validate(ValidationPlan plan, JsonObject toValidate) {
+		return record(plan, evaluate(plan, toValidate));
+	}
+
+	/**
+	 * Validates that a JSON is meeting the criteria of a compiled plan, using
+	 * an index of the JSON that was already built. The same index of every key
+	 * can be used to validate the JSON against any number of plans
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @return - Validation pass / fail
+	 */
+	public boolean validate(ValidationPlan plan, JsonObject toValidate,
+			DocumentIndex index) {
+		return record(plan, evaluate(plan, toValidate, index));
+	}
+
+	/**
+	 * Evaluates a compiled plan against a string json representation. Unlike
+	 * validate, evaluate doesn't change the validator, so one validator can
+	 * evaluate from any number of threads at once
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @return - the result of the validation
+	 */
+	public ValidationResult evaluate(ValidationPlan plan,
+			String toValidateJsonString) {
+		JsonObject toValidate = parse(toValidateJsonString);
+		return evaluate(plan, toValidate);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON read from a stream, without
+	 * parsing it into a tree unless the plan has composite validations. Doesn't
+	 * change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - reader of the JSON object to validate
+	 * @return - the result of the validation
+	 * @throws JsonIOException
+	 *             if the JSON can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult evaluate(ValidationPlan plan, Reader toValidate) {
+		if (plan.hasComposite()) {
+			return evaluate(plan, parse(toValidate));
 		}
-		else
-		{
-			System.out.println("Invalid Json Element Subclass: " + validationJson.getClass());
-			return false;
+		// without composites, nothing but the index is needed
+		return evaluate(plan, null, streamIndex(plan, toValidate));
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON file, memory mapped and read
+	 * like a stream. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @return - the result of the validation
+	 * @throws JsonIOException
+	 *             if the file can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult evaluate(ValidationPlan plan, Path toValidate) {
+		try (MappedFileReader reader = new MappedFileReader(toValidate)) {
+			return evaluate(plan, reader);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @return - the result of the validation
+	 */
+	public ValidationResult evaluate(ValidationPlan plan, JsonObject toValidate) {
+		return evaluate(plan, toValidate, DocumentIndex.build(toValidate, plan, indexPool, metrics));
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON, using an index of the JSON
+	 * that was already built. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate, of every key or built for the plan
+	 * @return - the result of the validation
+	 */
+	public ValidationResult evaluate(ValidationPlan plan,
+			JsonObject toValidate, DocumentIndex index) {
+		if (rulePool != null && plan.size() > 1) {
+			return evaluateRules(plan, toValidate, index, true, false);
 		}
-		
 		boolean overallPass = true;
+		JsonObject[] rules = new JsonObject[plan.size()];
+		boolean[] rulePasses = new boolean[plan.size()];
+		RuleOutcome[] outcomes = new RuleOutcome[plan.size()];
+		// composites of every rule share the indexes of the objects they
+		// look at
+		SubtreeIndexes subtrees = new SubtreeIndexes(toValidate, index, plan);
 		
-		for(JsonElement validation : validationJsons)
+		for (int i = 0; i < plan.size(); i++)
 		{
-			try {
-				JsonObject currValidation = (JsonObject) validation;
-				// create worker and the validation unit
-				ValidationWorker vw = new ValidationWorker();
-				ValidationUnit validationUnit = new ValidationUnit(currValidation);
-				// retrieve results
-				JsonObject result = vw.validate(validationUnit, toValidate);
-				boolean validationResult = vw.isOverallPass();
-				lastResult = validationResult;
-				// instantiate objects to store
-				JsonObject resultObject = new JsonObject();
-				resultObject.addProperty(JsonValidator.VALIDATION_RESULT, validationResult);
-				resultObject.add(JsonValidator.VALIDATION_DETAILS, result);
-				// add to results detail hash
-				validationDetail.put(currValidation, resultObject);
-				// tally up overall pass / fail
-				overallPass = overallPass && validationResult;
-			} catch (InvalidValidationJson e) {
+			rules[i] = plan.rule(i);
+			if (!plan.isValid(i)) {
 				System.out.println("validation Json has an invalid format");
-				e.printStackTrace();
+				metrics.ruleInvalid(rules[i]);
 				overallPass = false;
+				continue;
 			}
+			Cancellation.checkpoint();
+			// the validation unit is already compiled
+			ValidationUnit validationUnit = plan.getUnit(i);
+			RuleEvent event = new RuleEvent();
+			event.begin();
+			// retrieve results
+			outcomes[i] = ValidationWorker.outcome(validationUnit,
+					toValidate, index, subtrees, metrics);
+			rulePasses[i] = outcomes[i].isPass();
+			ValidationWorker.commit(event, validationUnit, rulePasses[i],
+					true, index);
+			// tally up overall pass / fail
+			overallPass = overallPass && rulePasses[i];
 		}
 		
-		return overallPass;
+		return new ValidationResult(overallPass, rules, rulePasses, outcomes);
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan, only working out whether each
+	 * rule passed. No result details are built unless they are retrieved from
+	 * the result. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @return - the verdicts of the validation
+	 */
+	public ValidationResult check(ValidationPlan plan,
+			String toValidateJsonString) {
+		JsonObject toValidate = parse(toValidateJsonString);
+		return check(plan, toValidate);
+	}
+
+	/**
+	 * Checks a JSON read from a stream against a compiled plan, without
+	 * parsing it into a tree unless the plan has composite validations, only
+	 * working out whether each rule passed. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - reader of the JSON object to validate
+	 * @return - the verdicts of the validation
+	 * @throws JsonIOException
+	 *             if the JSON can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult check(ValidationPlan plan, Reader toValidate) {
+		if (plan.hasComposite()) {
+			return check(plan, parse(toValidate));
+		}
+		return check(plan, null, streamIndex(plan, toValidate));
+	}
+
+	/**
+	 * Checks a JSON file against a compiled plan, memory mapped and read like
+	 * a stream, only working out whether each rule passed. Doesn't change the
+	 * validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @return - the verdicts of the validation
+	 * @throws JsonIOException
+	 *             if the file can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult check(ValidationPlan plan, Path toValidate) {
+		try (MappedFileReader reader = new MappedFileReader(toValidate)) {
+			return check(plan, reader);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan, only working out whether each
+	 * rule passed. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @return - the verdicts of the validation
+	 */
+	public ValidationResult check(ValidationPlan plan, JsonObject toValidate) {
+		return check(plan, toValidate, DocumentIndex.build(toValidate, plan, indexPool, metrics));
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan, using an index of the JSON that
+	 * was already built, only working out whether each rule passed. Doesn't
+	 * change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate, of every key or built for the plan
+	 * @return - the verdicts of the validation
+	 */
+	public ValidationResult check(ValidationPlan plan, JsonObject toValidate,
+			DocumentIndex index) {
+		return checkRules(plan, toValidate, index, false);
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan like check, but stops at the first
+	 * rule that fails. The rule that failed is reported by the result, the
+	 * rules after it are not evaluated. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @return - the verdicts of the validation up to the first failure
+	 */
+	public ValidationResult checkFailFast(ValidationPlan plan,
+			String toValidateJsonString) {
+		JsonObject toValidate = parse(toValidateJsonString);
+		return checkFailFast(plan, toValidate);
+	}
+
+	/**
+	 * Checks a JSON read from a stream against a compiled plan like check, but
+	 * stops at the first rule that fails. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - reader of the JSON object to validate
+	 * @return - the verdicts of the validation up to the first failure
+	 * @throws JsonIOException
+	 *             if the JSON can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult checkFailFast(ValidationPlan plan, Reader toValidate) {
+		if (plan.hasComposite()) {
+			return checkFailFast(plan, parse(toValidate));
+		}
+		return checkFailFast(plan, null, streamIndex(plan, toValidate));
+	}
+
+	/**
+	 * Checks a JSON file against a compiled plan like check, but stops at the
+	 * first rule that fails. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @return - the verdicts of the validation up to the first failure
+	 * @throws JsonIOException
+	 *             if the file can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	public ValidationResult checkFailFast(ValidationPlan plan, Path toValidate) {
+		try (MappedFileReader reader = new MappedFileReader(toValidate)) {
+			return checkFailFast(plan, reader);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan like check, but stops at the first
+	 * rule that fails. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @return - the verdicts of the validation up to the first failure
+	 */
+	public ValidationResult checkFailFast(ValidationPlan plan,
+			JsonObject toValidate) {
+		return checkFailFast(plan, toValidate, DocumentIndex.build(toValidate, plan, indexPool, metrics));
+	}
+
+	/**
+	 * Checks a JSON against a compiled plan like check, using an index of the
+	 * JSON that was already built, but stops at the first rule that fails.
+	 * Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate, of every key or built for the plan
+	 * @return - the verdicts of the validation up to the first failure
+	 */
+	public ValidationResult checkFailFast(ValidationPlan plan,
+			JsonObject toValidate, DocumentIndex index) {
+		return checkRules(plan, toValidate, index, true);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a string json representation without
+	 * blocking, on a virtual thread when the runtime has them and otherwise on
+	 * a shared pool of one thread per processor. The pool queues at most
+	 * ASYNC_QUEUE_CAPACITY validations waiting for a thread, a validation
+	 * beyond them completes exceptionally with a RejectedExecutionException.
+	 * Doesn't change the validator
+	 * 
+	 * Cancelling the future stops the validation at its next object, context
+	 * or rule. Futures made from it don't cancel it
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @return - the result of the validation, completed exceptionally if the
+	 *         JSON is malformed
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			ValidationPlan plan, String toValidateJsonString) {
+		return validateAsync(plan, toValidateJsonString, AsyncThreads.EXECUTOR);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a string json representation without
+	 * blocking, on an executor. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidateJsonString
+	 *            - string rep of to validate json
+	 * @param executor
+	 *            - what the validation runs on
+	 * @return - the result of the validation, completed exceptionally if the
+	 *         JSON is malformed
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			final ValidationPlan plan, final String toValidateJsonString,
+			Executor executor) {
+		return async(new Supplier<ValidationResult>() {
+			@Override
+			public ValidationResult get() {
+				return evaluate(plan, toValidateJsonString);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON without blocking, like
+	 * validateAsync does a string json representation. Doesn't change the
+	 * validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @return - the result of the validation
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			ValidationPlan plan, JsonObject toValidate) {
+		return validateAsync(plan, toValidate, AsyncThreads.EXECUTOR);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON without blocking, on an
+	 * executor. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate
+	 * @param executor
+	 *            - what the validation runs on
+	 * @return - the result of the validation
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			final ValidationPlan plan, final JsonObject toValidate,
+			Executor executor) {
+		return async(new Supplier<ValidationResult>() {
+			@Override
+			public ValidationResult get() {
+				return evaluate(plan, toValidate);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON file without blocking, like
+	 * validateAsync does a string json representation. Doesn't change the
+	 * validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @return - the result of the validation, completed exceptionally if the
+	 *         file can't be read or the JSON is malformed
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			ValidationPlan plan, Path toValidate) {
+		return validateAsync(plan, toValidate, AsyncThreads.EXECUTOR);
+	}
+
+	/**
+	 * Evaluates a compiled plan against a JSON file without blocking, on an
+	 * executor. Doesn't change the validator
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the UTF-8 file of the JSON object to validate
+	 * @param executor
+	 *            - what the validation runs on
+	 * @return - the result of the validation, completed exceptionally if the
+	 *         file can't be read or the JSON is malformed
+	 */
+	public CompletableFuture<ValidationResult> validateAsync(
+			final ValidationPlan plan, final Path toValidate,
+			Executor executor) {
+		return async(new Supplier<ValidationResult>() {
+			@Override
+			public ValidationResult get() {
+				return evaluate(plan, toValidate);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Runs a validation on an executor, with a future whose cancellation
+	 * stops the validation
+	 * 
+	 * @param validation
+	 *            - the validation
+	 * @param executor
+	 *            - what the validation runs on
+	 * @return - the result of the validation
+	 */
+	private static CompletableFuture<ValidationResult> async(
+			final Supplier<ValidationResult> validation, Executor executor) {
+		final Cancellation cancellation = new Cancellation();
+		final CompletableFuture<ValidationResult> future = new CompletableFuture<ValidationResult>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				cancellation.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (future.isDone()) {
+						// cancelled before it started
+						return;
+					}
+					Cancellation previous = Cancellation.enter(cancellation);
+					try {
+						future.complete(validation.get());
+					} catch (CancellationException e) {
+						future.cancel(false);
+					} catch (Throwable t) {
+						future.completeExceptionally(t);
+					} finally {
+						Cancellation.exit(previous);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * The executor of the asynchronous validations not given one, created
+	 * the first time it is used
+	 */
+	private static final class AsyncThreads {
+		private static final Executor EXECUTOR = create();
+
+		/**
+		 * how long an idle thread of the fallback pool is kept, in seconds
+		 */
+		private static final long KEEP_ALIVE_SECONDS = 60;
+
+		/**
+		 * 
+		 * @return an executor starting a virtual thread per validation if the
+		 *         runtime has them, otherwise a pool of a daemon thread per
+		 *         processor, stopped when idle, with a queue bounded by
+		 *         ASYNC_QUEUE_CAPACITY. Validations are mostly computation,
+		 *         more threads than processors wouldn't make them faster, and
+		 *         the bounds keep a burst of them from exhausting threads or
+		 *         memory
+		 */
+		private static Executor create() {
+			try {
+				// Java 21 and later
+				return (Executor) Executors.class.getMethod(
+						"newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				final AtomicInteger count = new AtomicInteger();
+				int threads = Runtime.getRuntime().availableProcessors();
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(threads,
+						threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<Runnable>(ASYNC_QUEUE_CAPACITY),
+						new ThreadFactory() {
+							@Override
+							public Thread newThread(Runnable task) {
+								Thread thread = new Thread(task,
+										"json-validator-async-"
+												+ count.incrementAndGet());
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+				pool.allowCoreThreadTimeOut(true);
+				return pool;
+			}
+		}
+	}
+
+	/**
+	 * Works out whether each rule of a plan passes
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param failFast
+	 *            - whether to stop at the first rule that fails
+	 * @return - the verdicts of the validation
+	 */
+	private ValidationResult checkRules(ValidationPlan plan,
+			JsonObject toValidate, DocumentIndex index, boolean failFast) {
+		if (rulePool != null && plan.size() > 1) {
+			return evaluateRules(plan, toValidate, index, false, failFast);
+		}
+		boolean overallPass = true;
+		JsonObject[] rules = new JsonObject[plan.size()];
+		boolean[] rulePasses = new boolean[plan.size()];
+
+		for (int i = 0; i < plan.size(); i++) {
+			rules[i] = plan.rule(i);
+		}
+
+		// composites of every rule share the indexes of the objects they
+		// look at
+		SubtreeIndexes subtrees = new SubtreeIndexes(toValidate, index, plan);
+
+		int evaluated = 0;
+		while (evaluated < plan.size() && (overallPass || !failFast)) {
+			int i = evaluated++;
+			if (!plan.isValid(i)) {
+				System.out.println("validation Json has an invalid format");
+				metrics.ruleInvalid(rules[i]);
+				overallPass = false;
+				continue;
+			}
+			Cancellation.checkpoint();
+			RuleEvent event = new RuleEvent();
+			event.begin();
+			rulePasses[i] = ValidationWorker.passes(plan.getUnit(i),
+					toValidate, index, subtrees, metrics);
+			ValidationWorker.commit(event, plan.getUnit(i), rulePasses[i],
+					false, index);
+			overallPass = overallPass && rulePasses[i];
+		}
+
+		return new ValidationResult(overallPass, rules, rulePasses,
+				evaluated, plan, toValidate, index);
+	}
+
+	/**
+	 * Evaluates the rules of a plan at once on the rule pool. Each rule's
+	 * verdict and details are kept at its place in the plan, so the result is
+	 * the same as when the rules are evaluated one after the other. A fail
+	 * fast evaluation skips the rules after a rule known to fail, and keeps
+	 * the verdicts up to the first rule that fails
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param toValidate
+	 *            - the JSON object to validate, only needed if the plan has
+	 *            composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param withDetails
+	 *            - whether the details of each rule are worked out
+	 * @param failFast
+	 *            - whether to stop at the first rule that fails
+	 * @return - the result of the validation
+	 */
+	private ValidationResult evaluateRules(ValidationPlan plan,
+			JsonObject toValidate, DocumentIndex index, boolean withDetails,
+			boolean failFast) {
+		RuleRun run = new RuleRun(plan, toValidate, index, withDetails,
+				failFast);
+		rulePool.invoke(new RuleTask(run, 0, plan.size()));
+
+		int evaluated = failFast ? Math.min(plan.size(),
+				run.firstFailure.get() + 1) : plan.size();
+		boolean overallPass = true;
+		JsonObject[] rules = new JsonObject[plan.size()];
+		for (int i = 0; i < plan.size(); i++) {
+			rules[i] = plan.rule(i);
+			if (i >= evaluated) {
+				// evaluated before the failure was known
+				run.rulePasses[i] = false;
+			} else if (!plan.isValid(i)) {
+				System.out.println("validation Json has an invalid format");
+				metrics.ruleInvalid(rules[i]);
+				overallPass = false;
+			} else {
+				overallPass = overallPass && run.rulePasses[i];
+			}
+		}
+
+		if (withDetails) {
+			return new ValidationResult(overallPass, rules, run.rulePasses,
+					run.outcomes);
+		}
+		return new ValidationResult(overallPass, rules, run.rulePasses,
+				evaluated, plan, toValidate, index);
+	}
+
+	/**
+	 * The evaluation of the rules of a plan shared by the tasks evaluating
+	 * them, each task writing the verdicts and details of its own rules
+	 */
+	private final class RuleRun {
+		private final ValidationPlan plan;
+		private final JsonObject toValidate;
+		private final DocumentIndex index;
+
+		/**
+		 * composites of every rule share the indexes of the objects they
+		 * look at
+		 */
+		private final SubtreeIndexes subtrees;
+
+		private final boolean[] rulePasses;
+
+		/**
+		 * what each rule found, null if the details aren't worked out
+		 */
+		private final RuleOutcome[] outcomes;
+
+		/**
+		 * the lowest index of a rule known to fail, null unless failing fast
+		 */
+		private final AtomicInteger firstFailure;
+
+		/**
+		 * the cancellation of the validation, given to the threads of the
+		 * pool, null if it can't be cancelled
+		 */
+		private final Cancellation cancellation = Cancellation.current();
+
+		private RuleRun(ValidationPlan plan, JsonObject toValidate,
+				DocumentIndex index, boolean withDetails, boolean failFast) {
+			this.plan = plan;
+			this.toValidate = toValidate;
+			this.index = index;
+			this.subtrees = new SubtreeIndexes(toValidate, index, plan);
+			this.rulePasses = new boolean[plan.size()];
+			this.outcomes = withDetails ? new RuleOutcome[plan.size()] : null;
+			this.firstFailure = failFast ? new AtomicInteger(plan.size())
+					: null;
+		}
+
+		/**
+		 * Evaluates a rule of the plan, unless a rule before it is known to
+		 * fail and the run fails fast
+		 * 
+		 * @param i
+		 *            - the index of the rule in the plan
+		 */
+		private void evaluate(int i) {
+			if (firstFailure != null && i > firstFailure.get()) {
+				return;
+			}
+			Cancellation previous = Cancellation.enter(cancellation);
+			try {
+				evaluateRule(i);
+			} finally {
+				Cancellation.exit(previous);
+			}
+		}
+
+		/**
+		 * Evaluates a rule of the plan on the current thread
+		 * 
+		 * @param i
+		 *            - the index of the rule in the plan
+		 */
+		private void evaluateRule(int i) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			if (plan.isValid(i)) {
+				ValidationUnit validationUnit = plan.getUnit(i);
+				RuleEvent event = new RuleEvent();
+				event.begin();
+				if (outcomes != null) {
+					outcomes[i] = ValidationWorker.outcome(validationUnit,
+							toValidate, index, subtrees, metrics);
+					rulePasses[i] = outcomes[i].isPass();
+				} else {
+					rulePasses[i] = ValidationWorker.passes(validationUnit,
+							toValidate, index, subtrees, metrics);
+				}
+				ValidationWorker.commit(event, validationUnit, rulePasses[i],
+						outcomes != null, index);
+			}
+			if (firstFailure != null && !rulePasses[i]) {
+				int failure = firstFailure.get();
+				while (i < failure && !firstFailure.compareAndSet(failure, i)) {
+					failure = firstFailure.get();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a range of the rules of a run, splitting it until each task
+	 * has a single rule
+	 */
+	private static final class RuleTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RuleRun run;
+		private final int from;
+		private final int to;
+
+		private RuleTask(RuleRun run, int from, int to) {
+			this.run = run;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				run.evaluate(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RuleTask(run, from, middle), new RuleTask(run,
+					middle, to));
+		}
+	}
+
+	/**
+	 * Keeps the result of a validate run as the last result and details
+	 * 
+	 * @param plan
+	 *            - the compiled validations
+	 * @param result
+	 *            - the result of the validation
+	 * @return - Validation pass / fail
+	 */
+	private boolean record(ValidationPlan plan, ValidationResult result) {
+		for (int i = 0; i < plan.size(); i++) {
+			if (plan.isValid(i)) {
+				lastResult = result.isPass(i);
+			}
+		}
+		lastValidation = result;
+		return result.isPass();
+	}
+
+	/**
+	 * Parses a JSON object to validate
+	 * 
+	 * @param toValidateJsonString
+	 *            - string rep of the JSON object
+	 * @return the JSON object
+	 */
+	private static JsonObject parse(String toValidateJsonString) {
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		JsonObject toValidate = (JsonObject) new JsonParser()
+				.parse(toValidateJsonString);
+		if (event.shouldCommit()) {
+			event.length = toValidateJsonString.length();
+			event.commit();
+		}
+		return toValidate;
+	}
+
+	/**
+	 * Parses a JSON object to validate from a stream
+	 * 
+	 * @param toValidate
+	 *            - reader of the JSON object
+	 * @return the JSON object
+	 */
+	private static JsonObject parse(Reader toValidate) {
+		ParseEvent event = new ParseEvent();
+		// the characters are only counted when the event is recorded
+		CountingReader counter = event.isEnabled() ? new CountingReader(
+				toValidate) : null;
+		event.begin();
+		JsonObject parsed = (JsonObject) new JsonParser()
+				.parse(counter != null ? counter : toValidate);
+		if (event.shouldCommit()) {
+			event.length = counter.count;
+			event.commit();
+		}
+		return parsed;
+	}
+
+	/**
+	 * Builds the index of a JSON for a plan while it is read from a stream
+	 * 
+	 * @param plan
+	 *            - the plan the index is built for
+	 * @param toValidate
+	 *            - reader of the JSON object to index
+	 * @return the index of the JSON
+	 * @throws JsonIOException
+	 *             if the JSON can't be read
+	 * @throws JsonSyntaxException
+	 *             if the JSON is malformed
+	 */
+	private DocumentIndex streamIndex(ValidationPlan plan,
+			Reader toValidate) {
+		JsonReader reader = new JsonReader(toValidate);
+		// the same leniency JsonParser parses with
+		reader.setLenient(true);
+		try {
+			long start = metrics.isEnabled() ? System.nanoTime() : 0;
+			DocumentIndex index = DocumentIndex.build(reader, plan);
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new JsonSyntaxException(
+						"Did not consume the entire document.");
+			}
+			if (metrics.isEnabled()) {
+				metrics.documentIndexed(index.size(), System.nanoTime() - start);
+			}
+			return index;
+		} catch (MalformedJsonException e) {
+			throw new JsonSyntaxException(e);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Reader counting the characters read through it
+	 */
+	private static final class CountingReader extends FilterReader {
+		private long count;
+
+		private CountingReader(Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = super.read();
+			if (c != -1) {
+				count++;
+			}
+			return c;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			int read = super.read(cbuf, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
 	}
 }
@@ -0,0 +1,209 @@
+package com.gnof.core;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressed table of keys with an int counter for each key.
+ *
+ * Every key added gets an id, in the order the keys were added starting from
+ * 0, so data kept for the keys can be held in arrays indexed by id that never
+ * have to be rearranged when the table grows. Keys are never removed.
+ *
+ * A table is not thread safe while keys are added.
+ *
+ * @author kofong
+ *
+ */
+final class KeyTable {
+
+	/**
+	 * the capacity of a new table, a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * the keys, indexed by id
+	 */
+	private String[] keys;
+
+	/**
+	 * the hash of each key, indexed by id
+	 */
+	private int[] hashes;
+
+	/**
+	 * the counter of each key, indexed by id
+	 */
+	private int[] counters;
+
+	/**
+	 * the open-addressed buckets, each holding the id of a key plus one, 0 if
+	 * empty
+	 */
+	private int[] buckets;
+
+	/**
+	 * the number of keys in the table
+	 */
+	private int size;
+
+	/**
+	 * Default constructor
+	 */
+	KeyTable() {
+		keys = new String[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+		counters = new int[INITIAL_CAPACITY];
+		buckets = new int[INITIAL_CAPACITY * 2];
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @param key
+	 *            - the key to look for
+	 * @return the id of the key, -1 if it isn't in the table
+	 */
+	int id(String key) {
+		int hash = hash(key);
+		int mask = buckets.length - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			int bucket = buckets[i];
+			if (bucket == 0) {
+				return -1;
+			}
+			int id = bucket - 1;
+			if (hashes[id] == hash && keys[id].equals(key)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Adds a key to the table if it isn't in it yet
+	 *
+	 * @param key
+	 *            - the key to add
+	 * @return the id of the key
+	 */
+	int add(String key) {
+		int hash = hash(key);
+		int mask = buckets.length - 1;
+		int i = hash & mask;
+		for (;; i = (i + 1) & mask) {
+			int bucket = buckets[i];
+			if (bucket == 0) {
+				break;
+			}
+			int id = bucket - 1;
+			if (hashes[id] == hash && keys[id].equals(key)) {
+				return id;
+			}
+		}
+
+		int id = size++;
+		if (id == keys.length) {
+			keys = Arrays.copyOf(keys, id * 2);
+			hashes = Arrays.copyOf(hashes, id * 2);
+			counters = Arrays.copyOf(counters, id * 2);
+		}
+		keys[id] = key;
+		hashes[id] = hash;
+		buckets[i] = id + 1;
+		// keep the buckets at most half full
+		if (size * 2 > buckets.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 *
+	 * @return the number of keys in the table
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param id
+	 *            - the id of a key
+	 * @return the key
+	 */
+	String key(int id) {
+		return keys[id];
+	}
+
+	/**
+	 *
+	 * @param id
+	 *            - the id of a key
+	 * @return the counter of the key
+	 */
+	int counter(int id) {
+		return counters[id];
+	}
+
+	/**
+	 * Adds one to the counter of a key
+	 *
+	 * @param id
+	 *            - the id of a key
+	 * @return the counter before it was incremented
+	 */
+	int increment(int id) {
+		return counters[id]++;
+	}
+
+	/**
+	 * Adds an amount to the counter of a key
+	 *
+	 * @param id
+	 *            - the id of a key
+	 * @param amount
+	 *            - the amount to add
+	 */
+	void increase(int id, int amount) {
+		counters[id] += amount;
+	}
+
+	/**
+	 * Takes one from the counter of a key
+	 *
+	 * @param id
+	 *            - the id of a key
+	 */
+	void decrement(int id) {
+		counters[id]--;
+	}
+
+	/**
+	 * Doubles the buckets and puts every key back in them
+	 */
+	private void rehash() {
+		int[] newBuckets = new int[buckets.length * 2];
+		int mask = newBuckets.length - 1;
+		for (int id = 0; id < size; id++) {
+			int i = hashes[id] & mask;
+			while (newBuckets[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			newBuckets[i] = id + 1;
+		}
+		buckets = newBuckets;
+	}
+
+	/**
+	 * Spreads the hash of a key so the low bits used for the buckets depend
+	 * on all of it
+	 *
+	 * @param key
+	 *            - the key
+	 * @return the hash of the key
+	 */
+	private static int hash(String key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,245 @@
+package com.gnof.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of a UTF-8 file that decodes the characters straight from the file
+ * mapped into memory. The file is mapped a window at a time, so files of any
+ * size can be read, and only a small buffer of decoded characters is held on
+ * the heap whatever the size of the file.
+ *
+ * Only one window is mapped at a time: a window is unmapped as soon as the
+ * next one is mapped, and the last one when the reader is closed, so the
+ * reader should be closed once it is read. Where the runtime doesn't allow
+ * unmapping, a window stays mapped until it is garbage collected, holding
+ * address space and, on some systems, keeping the file from being deleted.
+ *
+ * A byte order mark at the start of the file is skipped. Malformed UTF-8 is
+ * read as the replacement character. Not thread safe.
+ *
+ * @author kofong
+ *
+ */
+public final class MappedFileReader extends Reader {
+
+	/**
+	 * the default number of bytes mapped at a time
+	 */
+	public static final int DEFAULT_WINDOW = 1 << 28;
+
+	/**
+	 * the UTF-8 encoding of the byte order mark
+	 */
+	private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	/**
+	 * sun.misc.Unsafe and its invokeCleaner method, which unmaps a buffer,
+	 * null if the runtime doesn't have them
+	 */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			// Java 9 and later
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+					ByteBuffer.class);
+			unsafe = theUnsafe.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8
+			.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * the characters decoded and not read yet
+	 */
+	private final CharBuffer chars = CharBuffer.allocate(8192);
+
+	/**
+	 * the part of the file mapped, and where in the file it starts
+	 */
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	/**
+	 * whether every byte of the file has been decoded
+	 */
+	private boolean decoded;
+
+	/**
+	 * Constructor mapping DEFAULT_WINDOW bytes at a time
+	 *
+	 * @param file
+	 *            - the file to read
+	 * @throws IOException
+	 *             if the file can't be opened
+	 */
+	public MappedFileReader(Path file) throws IOException {
+		this(file, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param file
+	 *            - the file to read
+	 * @param windowSize
+	 *            - the number of bytes mapped at a time, at least 4 so a
+	 *            window always holds a whole character
+	 * @throws IOException
+	 *             if the file can't be opened
+	 */
+	public MappedFileReader(Path file, int windowSize) throws IOException {
+		if (windowSize < 4) {
+			throw new IllegalArgumentException("windowSize is below 4: "
+					+ windowSize);
+		}
+		this.windowSize = windowSize;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			this.size = channel.size();
+			map(0);
+			skipBom();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		chars.flip();
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (!channel.isOpen()) {
+			throw new IOException("Reader closed");
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!chars.hasRemaining() && !fill()) {
+			return -1;
+		}
+		int read = Math.min(len, chars.remaining());
+		chars.get(cbuf, off, read);
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (window != null) {
+			unmap(window);
+			window = null;
+		}
+		channel.close();
+	}
+
+	/**
+	 * Decodes the next characters of the file
+	 *
+	 * @return whether any characters were decoded, false at the end of the
+	 *         file
+	 * @throws IOException
+	 *             if the file can't be mapped
+	 */
+	private boolean fill() throws IOException {
+		chars.clear();
+		while (chars.position() == 0 && !decoded) {
+			boolean last = windowStart + window.limit() == size;
+			CoderResult result = decoder.decode(window, chars, last);
+			if (result.isOverflow()) {
+				break;
+			}
+			if (last) {
+				decoder.flush(chars);
+				decoded = true;
+			} else {
+				// a character cut by the end of the window is mapped again
+				// with the next one
+				map(windowStart + window.position());
+			}
+		}
+		chars.flip();
+		return chars.hasRemaining();
+	}
+
+	/**
+	 * Maps the window of the file starting at a position
+	 *
+	 * @param start
+	 *            - the position in the file
+	 * @throws IOException
+	 *             if the file can't be mapped
+	 */
+	private void map(long start) throws IOException {
+		MappedByteBuffer previous = window;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+				Math.min(windowSize, size - start));
+		windowStart = start;
+		// only unmapped once it is no longer the window, the reader never
+		// touches it again
+		if (previous != null) {
+			unmap(previous);
+		}
+	}
+
+	/**
+	 * Moves the first window past a byte order mark, which would otherwise be
+	 * read as the character U+FEFF. The window holds at least 4 bytes, so it
+	 * holds the whole mark
+	 */
+	private void skipBom() {
+		if (window.remaining() < BOM.length) {
+			return;
+		}
+		for (int i = 0; i < BOM.length; i++) {
+			if (window.get(i) != BOM[i]) {
+				return;
+			}
+		}
+		window.position(BOM.length);
+	}
+
+	/**
+	 * Unmaps a buffer mapped from a file if the runtime allows it, otherwise
+	 * leaves it to the garbage collector
+	 *
+	 * @param buffer
+	 *            - the buffer, never used after this
+	 */
+	static void unmap(MappedByteBuffer buffer) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left to the garbage collector
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.gnof.core;
+
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * An immutable multiset of expected items, hashed once so the items found in
+ * a JSON can be matched against it in a single pass.
+ *
+ * A Cover tracks which of the expected items have been found so far; each
+ * item found uses up one of the expected copies of it.
+ *
+ * @author kofong
+ *
+ */
+final class Multiset {
+
+	/**
+	 * the number of copies expected of each item
+	 */
+	private final HashMap<Object, Integer> counts;
+
+	/**
+	 * the number of items expected, counting copies and items that can't be
+	 * found
+	 */
+	private final int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param items
+	 *            - the items expected, null items can never be found
+	 */
+	Multiset(Collection<?> items) {
+		counts = new HashMap<Object, Integer>();
+		for (Object item : items) {
+			if (item == null) {
+				continue;
+			}
+			Integer count = counts.get(item);
+			counts.put(item, count == null ? 1 : count + 1);
+		}
+		size = items.size();
+	}
+
+	/**
+	 *
+	 * @return the number of items expected
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param item
+	 *            - an item
+	 * @return whether at least one copy of the item is expected
+	 */
+	boolean contains(Object item) {
+		return item != null && counts.containsKey(item);
+	}
+
+	/**
+	 *
+	 * @return a new cover with none of the items found
+	 */
+	Cover cover() {
+		return new Cover();
+	}
+
+	/**
+	 * The expected items found so far
+	 */
+	final class Cover {
+
+		/**
+		 * the number of copies found of each item, null until one is found
+		 */
+		private HashMap<Object, Integer> found;
+
+		/**
+		 * the number of expected items not found yet
+		 */
+		private int remaining = size;
+
+		/**
+		 * Uses up one expected copy of an item, if there is one left
+		 *
+		 * @param item
+		 *            - the item found
+		 * @return whether every expected item has been found
+		 */
+		boolean add(Object item) {
+			Integer expected = counts.get(item);
+			if (expected == null) {
+				return remaining == 0;
+			}
+			if (found == null) {
+				found = new HashMap<Object, Integer>();
+			}
+			Integer copies = found.get(item);
+			int used = copies == null ? 0 : copies;
+			if (used < expected) {
+				found.put(item, used + 1);
+				remaining--;
+			}
+			return remaining == 0;
+		}
+
+		/**
+		 *
+		 * @return whether every expected item has been found
+		 */
+		boolean isCovered() {
+			return remaining == 0;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.gnof.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a JSON to validate parsed into a tree. Disabled
+ * unless a recording enables it
+ * 
+ * @author kofong
+ * 
+ */
+@Name(ParseEvent.NAME)
+@Label("JSON Parse")
+@Category(ParseEvent.CATEGORY)
+@Description("A JSON to validate parsed into a tree")
+@Enabled(false)
+@StackTrace(false)
+final class ParseEvent extends Event {
+
+	static final String NAME = "com.gnof.Parse";
+	static final String CATEGORY = "JSON Validator";
+
+	@Label("Length")
+	@Description("The number of characters parsed")
+	long length;
+}
@@ -0,0 +1,230 @@
+package com.gnof.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * A path of keys from the root of a JSON, as a node of a trie that points to
+ * the node of its parent path.
+ *
+ * A path found in a JSON costs a single reference to its node, and the paths
+ * that share a beginning share its nodes. Children made with child are
+ * interned in their parent, so equal paths of the same trie are the same
+ * node. Paths are equal if they have the same keys, their hash is the same as
+ * the hash of a list of the keys.
+ *
+ * A trie is not thread safe while children are added to it.
+ *
+ * @author kofong
+ *
+ */
+final class PathNode {
+
+	/**
+	 * the parent path, null for the root
+	 */
+	private final PathNode parent;
+
+	/**
+	 * the last key of the path, null for the root
+	 */
+	private final String key;
+
+	/**
+	 * the number of keys in the path
+	 */
+	private final int depth;
+
+	/**
+	 * the hash of the path, the same as the hash of a list of its keys
+	 */
+	private final int hash;
+
+	/**
+	 * the interned children of the path, null until the first is added
+	 */
+	private HashMap<String, PathNode> children;
+
+	/**
+	 * Constructor
+	 *
+	 * @param parent
+	 *            - the parent path, null for the root
+	 * @param key
+	 *            - the last key of the path, null for the root
+	 */
+	private PathNode(PathNode parent, String key) {
+		this.parent = parent;
+		this.key = key;
+		if (parent == null) {
+			depth = 0;
+			hash = 1;
+		} else {
+			depth = parent.depth + 1;
+			hash = 31 * parent.hash + key.hashCode();
+		}
+	}
+
+	/**
+	 *
+	 * @return the empty path at the root of a new trie
+	 */
+	static PathNode root() {
+		return new PathNode(null, null);
+	}
+
+	/**
+	 * Makes a path from a list of keys, in a trie of its own
+	 *
+	 * @param keys
+	 *            - the keys from the root
+	 * @return the path, null if a key isn't a string
+	 */
+	static PathNode of(List<?> keys) {
+		PathNode path = root();
+		for (Object k : keys) {
+			if (!(k instanceof String)) {
+				return null;
+			}
+			path = new PathNode(path, (String) k);
+		}
+		return path;
+	}
+
+	/**
+	 * The path with a key added, interned so the same node is returned every
+	 * time for the same key
+	 *
+	 * @param childKey
+	 *            - the key to add
+	 * @return the child path
+	 */
+	PathNode child(String childKey) {
+		if (children == null) {
+			children = new HashMap<String, PathNode>();
+		}
+		PathNode child = children.get(childKey);
+		if (child == null) {
+			child = new PathNode(this, childKey);
+			children.put(childKey, child);
+		}
+		return child;
+	}
+
+	/**
+	 * The path with a key added, not interned, so it is only kept as long as
+	 * it is referenced
+	 *
+	 * @param childKey
+	 *            - the key to add
+	 * @return the child path
+	 */
+	PathNode newChild(String childKey) {
+		return new PathNode(this, childKey);
+	}
+
+	/**
+	 *
+	 * @return the parent path, null for the root
+	 */
+	PathNode parent() {
+		return parent;
+	}
+
+	/**
+	 *
+	 * @return the last key of the path, null for the root
+	 */
+	String key() {
+		return key;
+	}
+
+	/**
+	 *
+	 * @return the number of keys in the path
+	 */
+	int depth() {
+		return depth;
+	}
+
+	/**
+	 *
+	 * @param k
+	 *            - the key to look for
+	 * @return whether the key is in the path
+	 */
+	boolean contains(Object k) {
+		for (PathNode p = this; p.parent != null; p = p.parent) {
+			if (p.key.equals(k)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return a new list of the keys of the path, from the root
+	 */
+	ArrayList<String> toList() {
+		String[] keys = new String[depth];
+		for (PathNode p = this; p.parent != null; p = p.parent) {
+			keys[p.depth - 1] = p.key;
+		}
+		ArrayList<String> list = new ArrayList<String>(depth);
+		for (String k : keys) {
+			list.add(k);
+		}
+		return list;
+	}
+
+	/**
+	 *
+	 * @return a new JsonArray of the keys of the path, from the root
+	 */
+	JsonArray toJsonArray() {
+		JsonArray array = new JsonArray();
+		for (String k : toList()) {
+			array.add(new JsonPrimitive(k));
+		}
+		return array;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PathNode)) {
+			return false;
+		}
+		PathNode p = this;
+		PathNode other = (PathNode) o;
+		if (p.hash != other.hash || p.depth != other.depth) {
+			return false;
+		}
+		// walk up until the paths meet in a shared node or at their roots
+		while (p != other && p.parent != null) {
+			if (!p.key.equals(other.key)) {
+				return false;
+			}
+			p = p.parent;
+			other = other.parent;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return toList().toString();
+	}
+}
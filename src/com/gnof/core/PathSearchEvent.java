@@ -0,0 +1,38 @@
+package com.gnof.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the paths to an attribute looked up for the
+ * ancestor and hierarchy checks. Disabled unless a recording enables it
+ * 
+ * @author kofong
+ * 
+ */
+@Name(PathSearchEvent.NAME)
+@Label("Path Search")
+@Category(ParseEvent.CATEGORY)
+@Description("The paths to an attribute looked up for ancestor and hierarchy checks")
+@Enabled(false)
+@StackTrace(false)
+final class PathSearchEvent extends Event {
+
+	static final String NAME = "com.gnof.PathSearch";
+
+	@Label("Attribute")
+	String attribute;
+
+	@Label("Paths")
+	@Description("The number of paths found")
+	int paths;
+
+	@Label("Document Size")
+	@Description("The number of attributes in the JSON")
+	int documentSize;
+}
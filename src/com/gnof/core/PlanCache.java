@@ -0,0 +1,194 @@
+package com.gnof.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonElement;
+
+/**
+ * A cache of compiled plans keyed by the text of their validation json, so a
+ * validation json that was seen before costs a lookup instead of a parse and
+ * a compile.
+ *
+ * The cache holds at most a fixed number of plans. When it is full, the plan
+ * used the longest time ago is evicted. Validation json that can't be
+ * compiled isn't cached.
+ *
+ * Thread safe. Lookups hold a lock only for the time of the map access, plans
+ * are compiled outside of it, so two threads missing on the same validation
+ * json at once may both compile it.
+ *
+ * @author kofong
+ *
+ */
+public final class PlanCache {
+
+	/**
+	 * the plans, in the order they were last used
+	 */
+	private final LinkedHashMap<String, ValidationPlan> plans;
+
+	/**
+	 * the number of plans held at most
+	 */
+	private final int maximumSize;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            - the number of plans held at most, 0 to hold none
+	 */
+	public PlanCache(int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize is negative: "
+					+ maximumSize);
+		}
+		this.maximumSize = maximumSize;
+		this.plans = new LinkedHashMap<String, ValidationPlan>(16, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, ValidationPlan> eldest) {
+				if (size() > PlanCache.this.maximumSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets the plan of a validation json, compiling and caching it if it
+	 * isn't cached
+	 *
+	 * @param validationJsonString
+	 *            - string rep of validation json
+	 * @return the compiled plan
+	 * @throws InvalidValidationJson
+	 *             if the validation json is not an object or an array
+	 */
+	public ValidationPlan get(String validationJsonString)
+			throws InvalidValidationJson {
+		ValidationPlan plan;
+		synchronized (plans) {
+			plan = plans.get(validationJsonString);
+		}
+		if (plan != null) {
+			hits.incrementAndGet();
+			return plan;
+		}
+		misses.incrementAndGet();
+		plan = ValidationPlan.compile(validationJsonString);
+		synchronized (plans) {
+			plans.put(validationJsonString, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Gets the plan of a validation json element, compiling and caching it if
+	 * it isn't cached. The element is looked up by its text, so it is shared
+	 * with the same validation json given as a string, and an element changed
+	 * since its last lookup gets the plan of what it holds now
+	 *
+	 * @param validationJson
+	 *            - the validation json
+	 * @return the compiled plan
+	 * @throws InvalidValidationJson
+	 *             if the validation json is not an object or an array
+	 */
+	public ValidationPlan get(JsonElement validationJson)
+			throws InvalidValidationJson {
+		if (validationJson == null) {
+			return ValidationPlan.compile(validationJson);
+		}
+		return get(validationJson.toString());
+	}
+
+	/**
+	 * Compiles and caches plans ahead of their use. Doesn't count as hits or
+	 * misses
+	 *
+	 * @param validationJsonStrings
+	 *            - string reps of validation json
+	 * @throws InvalidValidationJson
+	 *             if a validation json is not an object or an array, the ones
+	 *             before it are cached
+	 */
+	public void prewarm(Iterable<String> validationJsonStrings)
+			throws InvalidValidationJson {
+		for (String validationJsonString : validationJsonStrings) {
+			ValidationPlan plan = ValidationPlan.compile(validationJsonString);
+			synchronized (plans) {
+				plans.put(validationJsonString, plan);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of plans held
+	 */
+	public int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of plans held at most
+	 */
+	public int maximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 *
+	 * @return the number of lookups that found their plan cached
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 *
+	 * @return the number of lookups that compiled their plan
+	 */
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 *
+	 * @return the number of plans evicted to make room for others
+	 */
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Removes every plan, the statistics are kept
+	 */
+	public void clear() {
+		synchronized (plans) {
+			plans.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size() + " hits=" + hits() + " misses=" + misses()
+				+ " evictions=" + evictions();
+	}
+}
@@ -0,0 +1,39 @@
+package com.gnof.core;
+
+/**
+ * Receives the result of every record of a batch validated by a
+ * BatchValidator or of a feed validated by a ValidationPipeline. A
+ * BatchValidator identifies records by the offset of their first byte in the
+ * file, a ValidationPipeline by their number in the order they're submitted.
+ *
+ * The methods are only called from one thread, the one running the batch or
+ * the evaluate stage of the pipeline, one at a time, so a listener doesn't
+ * need to be thread safe.
+ *
+ * @author kofong
+ *
+ */
+public interface RecordListener {
+
+	/**
+	 * Called for every record that was validated
+	 *
+	 * @param offset
+	 *            - the offset of the record in the file, or its number
+	 * @param result
+	 *            - the verdicts of the record, the details are worked out when
+	 *            they are retrieved
+	 */
+	void validated(long offset, ValidationResult result);
+
+	/**
+	 * Called for every record that couldn't be validated, such as a record
+	 * that isn't a JSON object. The batch goes on with the next record
+	 *
+	 * @param offset
+	 *            - the offset of the record in the file, or its number
+	 * @param e
+	 *            - why the record couldn't be validated
+	 */
+	void failed(long offset, RuntimeException e);
+}
@@ -0,0 +1,41 @@
+package com.gnof.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a rule evaluated against a JSON. Disabled unless a
+ * recording enables it
+ * 
+ * @author kofong
+ * 
+ */
+@Name(RuleEvent.NAME)
+@Label("Rule Evaluation")
+@Category(ParseEvent.CATEGORY)
+@Description("A rule evaluated against a JSON")
+@Enabled(false)
+@StackTrace(false)
+final class RuleEvent extends Event {
+
+	static final String NAME = "com.gnof.Rule";
+
+	@Label("Attribute")
+	String attribute;
+
+	@Label("Passed")
+	boolean passed;
+
+	@Label("Details")
+	@Description("Whether the result details were built, or only the verdict")
+	boolean details;
+
+	@Label("Document Size")
+	@Description("The number of attributes in the JSON")
+	int documentSize;
+}
@@ -0,0 +1,216 @@
+package com.gnof.core;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * What a rule found in a JSON, kept compact until the result details are
+ * asked for.
+ *
+ * The verdict of each check the rule made is a bit of a mask, one bit per
+ * check with the layout given by the constants below, and what the checks
+ * found is kept as the index had it: the values
+ * and paths of the attribute aren't copied. The result details described in
+ * ValidationWorker are only built by toJson, a new JSON object every time.
+ *
+ * An outcome isn't changed once ValidationWorker made it, so it can be shared
+ * between threads.
+ *
+ * @author kofong
+ *
+ */
+final class RuleOutcome {
+
+	/**
+	 * the bits of the checks in the masks
+	 */
+	static final int QUANTITY = 1;
+	static final int VALUE = 1 << 1;
+	static final int COMPOSITE = 1 << 2;
+	static final int ANCESTOR = 1 << 3;
+	static final int HIERARCHY = 1 << 4;
+
+	/**
+	 * whether the attribute of the rule is in the JSON
+	 */
+	final boolean hasAttribute;
+
+	/**
+	 * a bit for each check that wrote a verdict
+	 */
+	int checked;
+
+	/**
+	 * a bit for each check that passed
+	 */
+	int passed;
+
+	/**
+	 * the number of times the attribute was found, for the quantity check
+	 */
+	int quantityFound;
+
+	/**
+	 * the values the attribute was found with, for the value check
+	 */
+	List<JsonElement> valuesFound;
+
+	/**
+	 * the outcome of each context of the last composite, null if it was
+	 * invalid
+	 */
+	RuleOutcome[] compositeResults;
+
+	/**
+	 * the keys of the paths holding every ancestor, for the ancestor check
+	 */
+	Set<String> ancestorsFound;
+
+	/**
+	 * the paths to the attribute, for the hierarchy check
+	 */
+	List<PathNode> hierarchyFound;
+
+	/**
+	 * Constructor
+	 *
+	 * @param hasAttribute
+	 *            - whether the attribute of the rule is in the JSON
+	 */
+	RuleOutcome(boolean hasAttribute) {
+		this.hasAttribute = hasAttribute;
+	}
+
+	/**
+	 * Keeps the verdict of a check
+	 *
+	 * @param check
+	 *            - the bit of the check
+	 * @param pass
+	 *            - whether it passed
+	 */
+	void verdict(int check, boolean pass) {
+		checked |= check;
+		if (pass) {
+			passed |= check;
+		} else {
+			passed &= ~check;
+		}
+	}
+
+	/**
+	 *
+	 * @param check
+	 *            - the bit of the check
+	 * @return whether the check wrote a verdict
+	 */
+	boolean isChecked(int check) {
+		return (checked & check) != 0;
+	}
+
+	/**
+	 *
+	 * @param check
+	 *            - the bit of the check
+	 * @return whether the check passed, false if it wasn't made
+	 */
+	boolean isPass(int check) {
+		return (passed & check) != 0;
+	}
+
+	/**
+	 *
+	 * @return whether every check made passed
+	 */
+	boolean isPass() {
+		return passed == checked;
+	}
+
+	/**
+	 * Builds the result details of the rule
+	 *
+	 * @return a new JSON object of the result details, in the format
+	 *         described in ValidationWorker
+	 */
+	JsonObject toJson() {
+		JsonObject resultData = new JsonObject();
+		resultData.addProperty(ValidationWorker.HAS_ATTRIBUTE, hasAttribute);
+		if (isChecked(QUANTITY)) {
+			resultData.addProperty(ValidationWorker.MATCH_QUANTITY,
+					isPass(QUANTITY));
+			resultData.addProperty(ValidationWorker.QUANTITY_FOUND,
+					quantityFound);
+		}
+		if (isChecked(VALUE)) {
+			resultData.addProperty(ValidationWorker.MATCH_VALUE,
+					isPass(VALUE));
+			if (!hasAttribute) {
+				resultData.addProperty(ValidationWorker.VALUE_FOUND, "none");
+			} else {
+				JsonArray values = new JsonArray();
+				for (JsonElement value : valuesFound) {
+					values.add(copy(value));
+				}
+				resultData.add(ValidationWorker.VALUE_FOUND, values);
+			}
+		}
+		if (isChecked(COMPOSITE)) {
+			resultData.addProperty(ValidationWorker.MATCH_COMPOSITE,
+					isPass(COMPOSITE));
+			if (!hasAttribute) {
+				resultData.addProperty(ValidationWorker.COMPOSITE_RESULT,
+						"none");
+			} else if (compositeResults == null) {
+				resultData.addProperty(ValidationWorker.COMPOSITE_RESULT,
+						"invalid composite");
+			} else {
+				JsonArray contexts = new JsonArray();
+				for (RuleOutcome context : compositeResults) {
+					contexts.add(context.toJson());
+				}
+				resultData.add(ValidationWorker.COMPOSITE_RESULT, contexts);
+			}
+		}
+		if (isChecked(ANCESTOR)) {
+			resultData.addProperty(ValidationWorker.MATCH_ANCESTOR,
+					isPass(ANCESTOR));
+			resultData.addProperty(ValidationWorker.ANCESTOR_FOUND,
+					hasAttribute ? ancestorsFound.toString() : "none");
+		}
+		if (isChecked(HIERARCHY)) {
+			resultData.addProperty(ValidationWorker.MATCH_HIERARCHY,
+					isPass(HIERARCHY));
+			if (!hasAttribute) {
+				resultData.addProperty(ValidationWorker.HIERARCHY_FOUND,
+						"none");
+			} else {
+				JsonArray paths = new JsonArray();
+				for (PathNode path : hierarchyFound) {
+					paths.add(path.toJsonArray());
+				}
+				resultData.add(ValidationWorker.HIERARCHY_FOUND, paths);
+			}
+		}
+		return resultData;
+	}
+
+	/**
+	 * Copies a value found, so the details built can be changed without
+	 * changing the JSON validated
+	 *
+	 * @param value
+	 *            - the value
+	 * @return the value itself if it can't be changed, a copy otherwise
+	 */
+	private static JsonElement copy(JsonElement value) {
+		if (value.isJsonPrimitive() || value.isJsonNull()) {
+			return value;
+		}
+		return new JsonParser().parse(value.toString());
+	}
+}
@@ -0,0 +1,230 @@
+package com.gnof.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue between a single producer thread and a single consumer
+ * thread, held in a ring of slots.
+ *
+ * Each side only writes its own position, so neither takes a lock. A side
+ * waiting for the other spins briefly, then yields, then parks until the other
+ * side unparks it, so a full queue holds the producer back and an empty one the
+ * consumer, and an idle side doesn't wake up until there is something to do.
+ *
+ * A queue can be aborted, after which every put and take fails, including
+ * those waiting.
+ * Only one thread may put and one thread may take at a time.
+ *
+ * @author kofong
+ *
+ */
+final class SpscQueue<E> {
+
+	private static final int SPINS = 100;
+	private static final int YIELDS = 100;
+
+	/**
+	 * the slots, a power of two of them
+	 */
+	private final Object[] slots;
+	private final int mask;
+
+	/**
+	 * the number of elements taken so far, only written by the consumer
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * the number of elements put so far, only written by the producer
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * the number of elements taken as last seen by the producer, so it only
+	 * reads head when the queue looks full
+	 */
+	private long producerHead;
+
+	/**
+	 * the number of elements put as last seen by the consumer, so it only
+	 * reads tail when the queue looks empty
+	 */
+	private long consumerTail;
+
+	private volatile boolean aborted;
+
+	/**
+	 * the producer while it is parked or about to park on a full queue, null
+	 * otherwise
+	 */
+	private volatile Thread parkedProducer;
+
+	/**
+	 * the consumer while it is parked or about to park on an empty queue,
+	 * null otherwise
+	 */
+	private volatile Thread parkedConsumer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity
+	 *            - the number of elements held at most, rounded up to a power
+	 *            of two
+	 */
+	SpscQueue(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("invalid capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 *
+	 * @return the number of elements held at most
+	 */
+	int capacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Adds an element, waiting while the queue is full
+	 *
+	 * @param element
+	 *            - the element
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while it waits
+	 * @throws IllegalStateException
+	 *             if the queue was aborted
+	 */
+	void put(E element) throws InterruptedException {
+		checkAborted();
+		long t = tail.get();
+		if (t - producerHead == slots.length) {
+			producerHead = head.get();
+			int idle = 0;
+			try {
+				while (t - producerHead == slots.length) {
+					idle = idle(idle, true);
+					producerHead = head.get();
+				}
+			} finally {
+				parkedProducer = null;
+			}
+		}
+		slots[(int) t & mask] = element;
+		// publishes the element to the consumer, before a parked consumer is
+		// looked for, so one parking after checking tail is always seen
+		tail.set(t + 1);
+		Thread consumer = parkedConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Removes the oldest element, waiting while the queue is empty
+	 *
+	 * @return the element
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while it waits
+	 * @throws IllegalStateException
+	 *             if the queue was aborted
+	 */
+	@SuppressWarnings("unchecked")
+	E take() throws InterruptedException {
+		checkAborted();
+		long h = head.get();
+		if (h == consumerTail) {
+			consumerTail = tail.get();
+			int idle = 0;
+			try {
+				while (h == consumerTail) {
+					idle = idle(idle, false);
+					consumerTail = tail.get();
+				}
+			} finally {
+				parkedConsumer = null;
+			}
+		}
+		int slot = (int) h & mask;
+		E element = (E) slots[slot];
+		slots[slot] = null;
+		// frees the slot for the producer, before a parked producer is looked
+		// for, so one parking after checking head is always seen
+		head.set(h + 1);
+		Thread producer = parkedProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+		return element;
+	}
+
+	/**
+	 * Makes every put and take waiting or to come fail
+	 */
+	void abort() {
+		aborted = true;
+		Thread producer = parkedProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+		Thread consumer = parkedConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the queue was aborted
+	 */
+	private void checkAborted() {
+		if (aborted) {
+			throw new IllegalStateException("queue aborted");
+		}
+	}
+
+	/**
+	 * Waits a little for the other side. Once spinning and yielding are used
+	 * up the caller is published as parked, and from the next time on it
+	 * parks until the other side unparks it. The caller checks the queue
+	 * again between the two, so it can't miss the other side going on
+	 *
+	 * @param idle
+	 *            - the number of times the caller waited so far
+	 * @param producer
+	 *            - whether the caller is the producer
+	 * @return the number of times the caller waited, this one included
+	 * @throws InterruptedException
+	 *             if the thread is interrupted
+	 * @throws IllegalStateException
+	 *             if the queue was aborted
+	 */
+	private int idle(int idle, boolean producer) throws InterruptedException {
+		checkAborted();
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (idle < SPINS) {
+			Thread.onSpinWait();
+		} else if (idle < SPINS + YIELDS) {
+			Thread.yield();
+		} else if (idle == SPINS + YIELDS) {
+			if (producer) {
+				parkedProducer = Thread.currentThread();
+			} else {
+				parkedConsumer = Thread.currentThread();
+			}
+		} else {
+			LockSupport.park(this);
+		}
+		return idle + 1;
+	}
+}
@@ -0,0 +1,103 @@
+package com.gnof.core;
+
+import java.util.IdentityHashMap;
+
+import com.google.gson.JsonObject;
+
+/**
+ * The indexes of the objects of a JSON that composite validations look at,
+ * built the first time an object is looked at and reused after that.
+ *
+ * Composite validations search the JSON for contexts and validate each of
+ * them, and every composite of every rule searches the same objects. With the
+ * indexes kept here each object is indexed at most once while a JSON is
+ * validated, however many composites or contexts touch it.
+ *
+ * When the rules come from a plan the objects are indexed for the plan, which
+ * holds the attributes of the composites as well.
+ *
+ * Objects are told apart by identity, and the JSON must not change while the
+ * indexes are in use. One is used per validation of a JSON. It is thread safe
+ * so the rules of a validation can be evaluated at once; an object first
+ * looked at by two threads at the same time may be indexed by both.
+ *
+ * @author kofong
+ *
+ */
+final class SubtreeIndexes {
+
+	/**
+	 * the indexes built so far, keyed by the object they index
+	 */
+	private final IdentityHashMap<JsonObject, DocumentIndex> indexes = new IdentityHashMap<JsonObject, DocumentIndex>();
+
+	/**
+	 * the cancellation of the validation, null if it can't be cancelled
+	 */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * the plan the objects are indexed for, null to index every key
+	 */
+	private final ValidationPlan plan;
+
+	/**
+	 * Constructor of the indexes of every key
+	 *
+	 * @param root
+	 *            - the JSON validated, null if it isn't available
+	 * @param rootIndex
+	 *            - the index of root, already built
+	 */
+	SubtreeIndexes(JsonObject root, DocumentIndex rootIndex) {
+		this(root, rootIndex, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param root
+	 *            - the JSON validated, null if it isn't available
+	 * @param rootIndex
+	 *            - the index of root, already built
+	 * @param plan
+	 *            - the plan the objects are indexed for, null to index every
+	 *            key
+	 */
+	SubtreeIndexes(JsonObject root, DocumentIndex rootIndex,
+			ValidationPlan plan) {
+		this.plan = plan;
+		if (root != null) {
+			indexes.put(root, rootIndex);
+		}
+	}
+
+	/**
+	 *
+	 * @param subtree
+	 *            - an object of the JSON
+	 * @return the index of the object, built if it is looked at for the first
+	 *         time
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the validation was cancelled
+	 */
+	DocumentIndex index(JsonObject subtree) {
+		// every context a composite looks at is indexed first
+		if (cancellation != null) {
+			cancellation.check();
+		}
+		DocumentIndex index;
+		synchronized (indexes) {
+			index = indexes.get(subtree);
+		}
+		if (index == null) {
+			// indexed outside of the lock, the indexes are all the same
+			index = plan == null ? DocumentIndex.build(subtree)
+					: DocumentIndex.build(subtree, plan);
+			synchronized (indexes) {
+				indexes.put(subtree, index);
+			}
+		}
+		return index;
+	}
+}
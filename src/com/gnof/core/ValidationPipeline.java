@@ -0,0 +1,317 @@
+package com.gnof.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Validates a continuous feed of JSON objects against a compiled plan, with
+ * parsing, indexing and evaluating each on a thread of its own so the three
+ * overlap.
+ *
+ * The JSON objects are submitted as UTF-8 bytes. Each one goes through the
+ * parse stage, which decodes and parses it into a tree, the index stage,
+ * which builds its DocumentIndex, and the evaluate stage, which checks it
+ * against the plan like JsonValidator.check and hands the result to a
+ * RecordListener. The stages are connected by bounded queues, so when a stage
+ * falls behind the ones before it wait, and submit waits once the parse stage
+ * is behind.
+ *
+ * Records are numbered in the order they are submitted, from 0, and the
+ * results are handed to the listener in that order, from the evaluate stage
+ * thread. A record that isn't a JSON object is handed to the listener as
+ * failed and the feed goes on. If the listener throws, the pipeline stops and
+ * the exception is thrown by the next submit or close.
+ *
+ * Records may only be submitted from one thread at a time.
+ *
+ * @author kofong
+ *
+ */
+public final class ValidationPipeline implements AutoCloseable {
+
+	/**
+	 * the default number of records each queue holds at most
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * the record following the last one, closing each stage in turn
+	 */
+	private static final Record END = new Record(-1, null);
+
+	private final JsonValidator validator;
+	private final ValidationPlan plan;
+	private final RecordListener listener;
+
+	private final SpscQueue<Record> toParse;
+	private final SpscQueue<Record> toIndex;
+	private final SpscQueue<Record> toEvaluate;
+	private final Thread[] stages;
+
+	/**
+	 * the number of records submitted so far
+	 */
+	private long submitted;
+
+	private boolean closed;
+
+	/**
+	 * what stopped the pipeline, null while it runs
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Constructor with queues of DEFAULT_CAPACITY records
+	 *
+	 * @param validator
+	 *            - what the records are validated with, its metrics and index
+	 *            pool are used by the stages
+	 * @param plan
+	 *            - the compiled validations
+	 * @param listener
+	 *            - what the result of every record is handed to
+	 */
+	public ValidationPipeline(JsonValidator validator, ValidationPlan plan,
+			RecordListener listener) {
+		this(validator, plan, listener, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor, starts the stages
+	 *
+	 * @param validator
+	 *            - what the records are validated with, its metrics and index
+	 *            pool are used by the stages
+	 * @param plan
+	 *            - the compiled validations
+	 * @param listener
+	 *            - what the result of every record is handed to
+	 * @param capacity
+	 *            - the number of records each queue holds at most
+	 */
+	public ValidationPipeline(JsonValidator validator, ValidationPlan plan,
+			RecordListener listener, int capacity) {
+		this.validator = validator;
+		this.plan = plan;
+		this.listener = listener;
+		this.toParse = new SpscQueue<Record>(capacity);
+		this.toIndex = new SpscQueue<Record>(capacity);
+		this.toEvaluate = new SpscQueue<Record>(capacity);
+		this.stages = new Thread[] { stage(Stage.PARSE, toParse, toIndex),
+				stage(Stage.INDEX, toIndex, toEvaluate),
+				stage(Stage.EVALUATE, toEvaluate, null) };
+		for (Thread stage : stages) {
+			stage.start();
+		}
+	}
+
+	/**
+	 * Submits a JSON object, waiting while the parse stage is behind
+	 *
+	 * @param json
+	 *            - the UTF-8 bytes of the JSON object, read by the parse
+	 *            stage, so they must not change after they're submitted
+	 * @return the number of the record
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while it waits
+	 * @throws IllegalStateException
+	 *             if the pipeline is closed or was stopped by an exception
+	 */
+	public long submit(ByteBuffer json) throws InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("pipeline closed");
+		}
+		checkFailure();
+		Record record = new Record(submitted, json);
+		try {
+			toParse.put(record);
+		} catch (IllegalStateException e) {
+			checkFailure();
+			throw e;
+		}
+		return submitted++;
+	}
+
+	/**
+	 * Submits a JSON object, waiting while the parse stage is behind
+	 *
+	 * @param json
+	 *            - the UTF-8 bytes of the JSON object, read by the parse
+	 *            stage, so they must not change after they're submitted
+	 * @return the number of the record
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while it waits
+	 * @throws IllegalStateException
+	 *             if the pipeline is closed or was stopped by an exception
+	 */
+	public long submit(byte[] json) throws InterruptedException {
+		return submit(ByteBuffer.wrap(json));
+	}
+
+	/**
+	 *
+	 * @return the number of records submitted so far
+	 */
+	public long submitted() {
+		return submitted;
+	}
+
+	/**
+	 * Waits until the result of every record submitted is handed to the
+	 * listener, then stops the stages. If the thread is interrupted while it
+	 * waits, the pipeline is stopped without handing over the results left,
+	 * and the thread is interrupted again when close returns
+	 *
+	 * @throws IllegalStateException
+	 *             if the pipeline was stopped by an exception, or by the
+	 *             interruption of close
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			try {
+				toParse.put(END);
+				for (Thread stage : stages) {
+					stage.join();
+				}
+			} catch (IllegalStateException e) {
+				// stopped by a failure, thrown below
+			} catch (InterruptedException e) {
+				stop(e);
+				Thread.currentThread().interrupt();
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Makes a stage thread
+	 *
+	 * @param stage
+	 *            - the stage
+	 * @param in
+	 *            - the queue the stage takes records from
+	 * @param out
+	 *            - the queue the stage puts records in, null for the last
+	 *            stage
+	 * @return the thread, not started
+	 */
+	private Thread stage(final Stage stage, final SpscQueue<Record> in,
+			final SpscQueue<Record> out) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Record record = in.take();
+					while (record != END) {
+						process(stage, record);
+						if (out != null) {
+							out.put(record);
+						}
+						record = in.take();
+					}
+					if (out != null) {
+						out.put(END);
+					}
+				} catch (Throwable t) {
+					stop(t);
+				}
+			}
+		}, "validation-pipeline-" + stage.name().toLowerCase());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Runs a stage on a record. A record that failed an earlier stage is only
+	 * handed to the listener
+	 *
+	 * @param stage
+	 *            - the stage
+	 * @param record
+	 *            - the record
+	 */
+	private void process(Stage stage, Record record) {
+		if (stage == Stage.EVALUATE) {
+			if (record.failure != null) {
+				listener.failed(record.number, record.failure);
+			} else {
+				listener.validated(record.number, validator.check(plan,
+						record.json, record.index));
+			}
+			return;
+		}
+		if (record.failure != null) {
+			return;
+		}
+		try {
+			if (stage == Stage.PARSE) {
+				CharBuffer chars = StandardCharsets.UTF_8.decode(record.bytes);
+				// the bytes aren't needed by the stages after
+				record.bytes = null;
+				record.json = (JsonObject) new JsonParser()
+						.parse(new CharBufferReader(chars));
+			} else {
+				record.index = DocumentIndex.build(record.json, plan,
+						validator.getIndexPool(), validator.getMetrics());
+			}
+		} catch (RuntimeException e) {
+			record.failure = e;
+		}
+	}
+
+	/**
+	 * Stops the pipeline after an exception
+	 *
+	 * @param t
+	 *            - the exception
+	 */
+	private void stop(Throwable t) {
+		if (failure == null) {
+			failure = t;
+		}
+		toParse.abort();
+		toIndex.abort();
+		toEvaluate.abort();
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the pipeline was stopped by an exception
+	 */
+	private void checkFailure() {
+		if (failure != null) {
+			throw new IllegalStateException("pipeline stopped", failure);
+		}
+	}
+
+	/**
+	 * The stages, in the order a record goes through them
+	 */
+	private enum Stage {
+		PARSE, INDEX, EVALUATE
+	}
+
+	/**
+	 * A JSON object submitted, and what the stages made of it so far. Handed
+	 * from stage to stage through the queues, so only one stage uses it at a
+	 * time
+	 */
+	private static final class Record {
+		private final long number;
+		private ByteBuffer bytes;
+		private JsonObject json;
+		private DocumentIndex index;
+		private RuntimeException failure;
+
+		private Record(long number, ByteBuffer bytes) {
+			this.number = number;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+package com.gnof.core;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * A compiled set of validations.
+ *
+ * The validation json (a single validation object or an array of them, in
+ * the format described in JsonValidator) is parsed into ValidationUnits once
+ * when the plan is compiled. The plan can then be applied to any number of
+ * JSONs without parsing the validation json again.
+ *
+ * A plan is immutable once compiled, and can be shared between threads. The
+ * validation json of its rules is only handed out as copies, so changing
+ * them doesn't change the plan.
+ *
+ * @author kofong
+ *
+ */
+public final class ValidationPlan {
+
+	/**
+	 * the validation json of each rule, in the order they were given
+	 */
+	private final JsonObject[] rules;
+
+	/**
+	 * the compiled validation unit of each rule, null if the rule was invalid
+	 */
+	private final ValidationUnit[] units;
+
+	/**
+	 * the attributes the valid rules and their composites look for
+	 */
+	private final Set<String> attributes;
+
+	/**
+	 * the attributes the valid rules and their composites expect values for
+	 */
+	private final Set<String> valueAttributes;
+
+	/**
+	 * the attributes the valid rules and their composites check the paths of
+	 */
+	private final Set<String> pathAttributes;
+
+	/**
+	 * whether any valid rule has a composite validation
+	 */
+	private final boolean hasComposite;
+
+	/**
+	 * Constructor, use compile to create a plan
+	 *
+	 * @param rules
+	 *            - the validation json of each rule
+	 * @param units
+	 *            - the compiled validation units of each rule
+	 */
+	private ValidationPlan(JsonObject[] rules, ValidationUnit[] units) {
+		this.rules = rules;
+		this.units = units;
+
+		HashSet<String> attributes = new HashSet<String>();
+		HashSet<String> valueAttributes = new HashSet<String>();
+		HashSet<String> pathAttributes = new HashSet<String>();
+		boolean hasComposite = false;
+		for (ValidationUnit unit : units) {
+			if (unit == null) {
+				continue;
+			}
+			gatherAttributes(unit, attributes, valueAttributes, pathAttributes);
+			hasComposite = hasComposite || unit.hasComposite();
+		}
+		this.attributes = Collections.unmodifiableSet(attributes);
+		this.valueAttributes = Collections.unmodifiableSet(valueAttributes);
+		this.pathAttributes = Collections.unmodifiableSet(pathAttributes);
+		this.hasComposite = hasComposite;
+	}
+
+	/**
+	 * Adds the attributes a unit looks at to the sets of the plan, and those
+	 * of the units of its composite, which are validated against the contexts
+	 * of the composite
+	 *
+	 * @param unit
+	 *            - the validation unit
+	 * @param attributes
+	 *            - the attributes looked for
+	 * @param valueAttributes
+	 *            - the attributes values are expected for
+	 * @param pathAttributes
+	 *            - the attributes the paths are checked of
+	 */
+	private static void gatherAttributes(ValidationUnit unit,
+			Set<String> attributes, Set<String> valueAttributes,
+			Set<String> pathAttributes) {
+		attributes.add(unit.getAttribute());
+		if (unit.hasValue()) {
+			valueAttributes.add(unit.getAttribute());
+		}
+		if (unit.hasAncestor() || unit.hasHierarchy()) {
+			pathAttributes.add(unit.getAttribute());
+		}
+		if (unit.getCompositeUnits() == null) {
+			return;
+		}
+		for (ValidationUnit composite : unit.getCompositeUnits()) {
+			if (composite != null) {
+				gatherAttributes(composite, attributes, valueAttributes,
+						pathAttributes);
+			}
+		}
+	}
+
+	/**
+	 * Compiles a plan from a string representation of the validation json
+	 *
+	 * @param validationJsonString
+	 *            - string rep of validation json
+	 * @return the compiled plan
+	 * @throws InvalidValidationJson
+	 *             if the validation json is not an object or an array
+	 */
+	public static ValidationPlan compile(String validationJsonString)
+			throws InvalidValidationJson {
+		JsonParser parser = new JsonParser();
+		return compileOwned(parser.parse(validationJsonString));
+	}
+
+	/**
+	 * Compiles a plan from the validation json. The validation json is copied,
+	 * later changes to it are not seen by the plan
+	 *
+	 * @param validationJson
+	 *            - definition of expected content as formatted in
+	 *            JsonValidator
+	 * @return the compiled plan
+	 * @throws InvalidValidationJson
+	 *             if the validation json is not an object or an array
+	 */
+	public static ValidationPlan compile(JsonElement validationJson)
+			throws InvalidValidationJson {
+		if (validationJson == null) {
+			throw new InvalidValidationJson("Validation JSON is null");
+		}
+		JsonParser parser = new JsonParser();
+		return compileOwned(parser.parse(validationJson.toString()));
+	}
+
+	/**
+	 * Compiles a plan from a validation json that nobody else holds a
+	 * reference to
+	 *
+	 * @param validationJson
+	 *            - the validation json
+	 * @return the compiled plan
+	 * @throws InvalidValidationJson
+	 *             if the validation json is not an object or an array
+	 */
+	private static ValidationPlan compileOwned(JsonElement validationJson)
+			throws InvalidValidationJson {
+		JsonArray validationJsons = new JsonArray();
+
+		// Checking for single validation or a collection of them
+		if (validationJson instanceof JsonArray) {
+			validationJsons = (JsonArray) validationJson;
+		} else if (validationJson instanceof JsonObject) {
+			validationJsons.add(validationJson);
+		} else {
+			throw new InvalidValidationJson("Invalid Json Element Subclass: "
+					+ validationJson.getClass());
+		}
+
+		int size = validationJsons.size();
+		JsonObject[] rules = new JsonObject[size];
+		ValidationUnit[] units = new ValidationUnit[size];
+		for (int i = 0; i < size; i++) {
+			JsonElement validation = validationJsons.get(i);
+			if (!validation.isJsonObject()) {
+				continue;
+			}
+			rules[i] = validation.getAsJsonObject();
+			try {
+				units[i] = new ValidationUnit(rules[i]);
+			} catch (InvalidValidationJson e) {
+				units[i] = null;
+			}
+		}
+		return new ValidationPlan(rules, units);
+	}
+
+	/**
+	 *
+	 * @return the number of rules in the plan
+	 */
+	public int size() {
+		return units.length;
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule
+	 * @return whether the rule compiled into a validation unit
+	 */
+	public boolean isValid(int index) {
+		return units[index] != null;
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule
+	 * @return a copy of the validation json of the rule, null if the rule was
+	 *         not a JSON object
+	 */
+	public JsonObject getRule(int index) {
+		return copy(rules[index]);
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule
+	 * @return the validation json of the rule held by the plan, which must
+	 *         not be changed, null if the rule was not a JSON object
+	 */
+	JsonObject rule(int index) {
+		return rules[index];
+	}
+
+	/**
+	 * Copies the validation json of a rule, so it can be handed out without
+	 * the plan being changed through it
+	 *
+	 * @param rule
+	 *            - the validation json, or null
+	 * @return a copy of it, null if it is null
+	 */
+	static JsonObject copy(JsonObject rule) {
+		if (rule == null) {
+			return null;
+		}
+		return new JsonParser().parse(rule.toString()).getAsJsonObject();
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule
+	 * @return the compiled validation unit of the rule, null if invalid
+	 */
+	public ValidationUnit getUnit(int index) {
+		return units[index];
+	}
+
+	/**
+	 *
+	 * @return the attributes the valid rules of the plan and their composites
+	 *         look for
+	 */
+	public Set<String> attributes() {
+		return attributes;
+	}
+
+	/**
+	 *
+	 * @return the attributes the valid rules of the plan and their composites
+	 *         expect values for
+	 */
+	public Set<String> valueAttributes() {
+		return valueAttributes;
+	}
+
+	/**
+	 *
+	 * @return the attributes the valid rules of the plan and their composites
+	 *         check the ancestors or the hierarchy of
+	 */
+	public Set<String> pathAttributes() {
+		return pathAttributes;
+	}
+
+	/**
+	 * Composite validations search the objects around the attribute, so a plan
+	 * with composites needs the whole JSON and can't be streamed
+	 *
+	 * @return whether any valid rule of the plan has a composite validation
+	 */
+	public boolean hasComposite() {
+		return hasComposite;
+	}
+}
@@ -0,0 +1,345 @@
+package com.gnof.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+import com.google.gson.JsonObject;
+
+/**
+ * A Flow.Processor validating every JSON object it receives against a
+ * compiled plan and publishing the verdicts, like JsonValidator.check, in the
+ * order the objects were received.
+ *
+ * It holds no buffer: each object is validated on the thread the upstream
+ * publisher delivers it on, and the demand of the subscriber is passed on to
+ * the upstream as it is, so no more objects are received than results were
+ * requested. A slow subscriber slows the upstream down instead of filling
+ * memory.
+ *
+ * An object that can't be validated, such as a buffer that isn't a JSON
+ * object, cancels the upstream and ends the results with the exception, like
+ * any error of the upstream. Only one subscriber is taken, later ones get an
+ * IllegalStateException. The subscriber is signalled one signal at a time:
+ * an end coming while a result is published, such as a non-positive request
+ * from another thread, is signalled once the result is.
+ *
+ * @author kofong
+ *
+ * @param <T>
+ *            - the type of the JSON objects received
+ */
+public abstract class ValidationProcessor<T> implements
+		Flow.Processor<T, ValidationResult> {
+
+	private final Object lock = new Object();
+
+	/**
+	 * the subscription to the upstream, null until it subscribes
+	 */
+	private Flow.Subscription upstream;
+
+	/**
+	 * the subscriber of the results, null until it subscribes
+	 */
+	private volatile Flow.Subscriber<? super ValidationResult> downstream;
+
+	/**
+	 * whether the subscriber was given its subscription, it is only given the
+	 * end of the results after
+	 */
+	private boolean subscribed;
+
+	/**
+	 * the results requested before the upstream subscribed
+	 */
+	private long demand;
+
+	/**
+	 * whether a result is being published, the end of the results waits for
+	 * it so the subscriber is signalled one signal at a time
+	 */
+	private boolean publishing;
+
+	/**
+	 * how the results ended while they couldn't be signalled, before the
+	 * subscriber was given its subscription or while a result was being
+	 * published
+	 */
+	private boolean ended;
+	private Throwable error;
+
+	/**
+	 * whether the results ended or the subscriber cancelled, nothing is
+	 * published after, and an upstream subscribing after is cancelled
+	 */
+	private volatile boolean done;
+
+	private ValidationProcessor() {
+	}
+
+	/**
+	 * Makes a processor of parsed JSON objects
+	 *
+	 * @param validator
+	 *            - what the objects are validated with
+	 * @param plan
+	 *            - the compiled validations
+	 * @return the processor
+	 */
+	public static ValidationProcessor<JsonObject> ofDocuments(
+			final JsonValidator validator, final ValidationPlan plan) {
+		return new ValidationProcessor<JsonObject>() {
+			@Override
+			ValidationResult check(JsonObject item) {
+				return validator.check(plan, item);
+			}
+		};
+	}
+
+	/**
+	 * Makes a processor of JSON objects in UTF-8 bytes, parsed straight from
+	 * the buffer without making a string. The position of the buffers
+	 * received is left as it is
+	 *
+	 * @param validator
+	 *            - what the objects are validated with
+	 * @param plan
+	 *            - the compiled validations
+	 * @return the processor
+	 */
+	public static ValidationProcessor<ByteBuffer> ofBuffers(
+			final JsonValidator validator, final ValidationPlan plan) {
+		return new ValidationProcessor<ByteBuffer>() {
+			@Override
+			ValidationResult check(ByteBuffer item) {
+				return validator.check(plan, new CharBufferReader(
+						StandardCharsets.UTF_8.decode(item.duplicate())));
+			}
+		};
+	}
+
+	/**
+	 * Validates a JSON object received
+	 *
+	 * @param item
+	 *            - the JSON object
+	 * @return the verdicts of the validation
+	 */
+	abstract ValidationResult check(T item);
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super ValidationResult> subscriber) {
+		Objects.requireNonNull(subscriber);
+		boolean first;
+		synchronized (lock) {
+			first = downstream == null;
+			if (first) {
+				downstream = subscriber;
+			}
+		}
+		if (!first) {
+			reject(subscriber);
+			return;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				requested(n);
+			}
+
+			@Override
+			public void cancel() {
+				synchronized (lock) {
+					done = true;
+				}
+				cancelUpstream();
+			}
+		});
+		signalEnded(true);
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		long pending;
+		synchronized (lock) {
+			if (upstream != null || done) {
+				pending = -1;
+			} else {
+				upstream = subscription;
+				pending = demand;
+				demand = 0;
+			}
+		}
+		if (pending < 0) {
+			subscription.cancel();
+		} else if (pending > 0) {
+			subscription.request(pending);
+		}
+	}
+
+	@Override
+	public void onNext(T item) {
+		Objects.requireNonNull(item);
+		synchronized (lock) {
+			if (done) {
+				return;
+			}
+			publishing = true;
+		}
+		ValidationResult result = null;
+		RuntimeException failure = null;
+		try {
+			result = check(item);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		try {
+			if (result != null && !done) {
+				downstream.onNext(result);
+			}
+		} finally {
+			signalEnded(false);
+		}
+		if (failure != null) {
+			end(failure);
+			cancelUpstream();
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		Objects.requireNonNull(throwable);
+		end(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		end(null);
+	}
+
+	/**
+	 * Passes the demand of the subscriber on to the upstream, or keeps it
+	 * until the upstream subscribes
+	 *
+	 * @param n
+	 *            - the number of results requested
+	 */
+	private void requested(long n) {
+		if (n <= 0) {
+			// signalled after the result being published, if there is one
+			end(new IllegalArgumentException("non-positive request: " + n));
+			cancelUpstream();
+			return;
+		}
+		Flow.Subscription subscription;
+		synchronized (lock) {
+			subscription = upstream;
+			if (subscription == null) {
+				demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+				return;
+			}
+		}
+		subscription.request(n);
+	}
+
+	/**
+	 * Cancels the upstream, or the one subscribing later once it does
+	 */
+	private void cancelUpstream() {
+		Flow.Subscription subscription;
+		synchronized (lock) {
+			subscription = upstream;
+		}
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+
+	/**
+	 * Ends the results, unless they ended or the subscriber cancelled. The
+	 * end is only recorded if it can't be signalled yet, it is signalled by
+	 * the thread that gives the subscriber its subscription or publishes the
+	 * result
+	 *
+	 * @param t
+	 *            - the error ending them, null if they completed
+	 */
+	private void end(Throwable t) {
+		synchronized (lock) {
+			if (done) {
+				return;
+			}
+			done = true;
+			if (!subscribed || publishing) {
+				ended = true;
+				error = t;
+				return;
+			}
+		}
+		signal(t);
+	}
+
+	/**
+	 * Signals the end of the results recorded while they couldn't be
+	 * signalled
+	 *
+	 * @param subscribing
+	 *            - whether the subscriber was just given its subscription,
+	 *            otherwise a result was just published
+	 */
+	private void signalEnded(boolean subscribing) {
+		Throwable t;
+		synchronized (lock) {
+			if (subscribing) {
+				subscribed = true;
+			} else {
+				publishing = false;
+			}
+			if (!ended) {
+				return;
+			}
+			ended = false;
+			t = error;
+			error = null;
+		}
+		signal(t);
+	}
+
+	/**
+	 * Signals the end of the results to the subscriber
+	 *
+	 * @param t
+	 *            - the error ending them, null if they completed
+	 */
+	private void signal(Throwable t) {
+		if (t != null) {
+			downstream.onError(t);
+		} else {
+			downstream.onComplete();
+		}
+	}
+
+	/**
+	 * Ends the results of a subscriber other than the first
+	 *
+	 * @param subscriber
+	 *            - the subscriber
+	 */
+	private static void reject(
+			Flow.Subscriber<? super ValidationResult> subscriber) {
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+		subscriber.onError(new IllegalStateException(
+				"processor already subscribed"));
+	}
+}
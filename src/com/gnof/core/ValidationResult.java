@@ -0,0 +1,249 @@
+package com.gnof.core;
+
+import java.util.HashMap;
+
+import com.google.gson.JsonObject;
+
+/**
+ * The result of validating a JSON against a ValidationPlan.
+ *
+ * It holds whether the JSON passed overall and, for every rule of the plan in
+ * the order of the plan, whether the rule passed and what its checks found,
+ * kept compact: the result details ValidationWorker describes are only built
+ * when they are retrieved.
+ *
+ * A result made by JsonValidator.checkFailFast stops at the first rule that
+ * fails, the rules after it are not evaluated.
+ *
+ * A result made by JsonValidator.check only holds the verdicts. Its details
+ * are worked out again from the JSON when they are retrieved, so the JSON and
+ * its index are kept by the result.
+ *
+ * A result is immutable and can be shared between threads. The details are
+ * built anew when they are retrieved, so changing them doesn't change the
+ * result.
+ *
+ * @author kofong
+ *
+ */
+public final class ValidationResult {
+
+	/**
+	 * whether every rule passed
+	 */
+	private final boolean pass;
+
+	/**
+	 * the validation json of each rule, in the order of the plan
+	 */
+	private final JsonObject[] rules;
+
+	/**
+	 * whether each rule passed, false for invalid rules and rules not
+	 * evaluated
+	 */
+	private final boolean[] rulePasses;
+
+	/**
+	 * the number of rules evaluated, from the first rule of the plan
+	 */
+	private final int evaluated;
+
+	/**
+	 * what each rule found, null for invalid rules, or null if the details
+	 * are worked out when they are retrieved
+	 */
+	private final RuleOutcome[] outcomes;
+
+	/**
+	 * the plan validated, to work out the details
+	 */
+	private final ValidationPlan plan;
+
+	/**
+	 * the JSON validated, to work out the details
+	 */
+	private final JsonObject toValidate;
+
+	/**
+	 * the index of the JSON validated, to work out the details
+	 */
+	private final DocumentIndex index;
+
+	/**
+	 * Constructor, results are created by JsonValidator
+	 *
+	 * @param pass
+	 *            - whether every rule passed
+	 * @param rules
+	 *            - the validation json of each rule
+	 * @param rulePasses
+	 *            - whether each rule passed
+	 * @param outcomes
+	 *            - what each rule found
+	 */
+	ValidationResult(boolean pass, JsonObject[] rules, boolean[] rulePasses,
+			RuleOutcome[] outcomes) {
+		this.pass = pass;
+		this.rules = rules;
+		this.rulePasses = rulePasses;
+		this.evaluated = rules.length;
+		this.outcomes = outcomes;
+		this.plan = null;
+		this.toValidate = null;
+		this.index = null;
+	}
+
+	/**
+	 * Constructor for a result whose details are worked out when they are
+	 * retrieved, results are created by JsonValidator
+	 *
+	 * @param pass
+	 *            - whether every rule passed
+	 * @param rules
+	 *            - the validation json of each rule
+	 * @param rulePasses
+	 *            - whether each rule passed
+	 * @param evaluated
+	 *            - the number of rules evaluated
+	 * @param plan
+	 *            - the plan validated
+	 * @param toValidate
+	 *            - the JSON validated
+	 * @param index
+	 *            - the index of the JSON validated
+	 */
+	ValidationResult(boolean pass, JsonObject[] rules, boolean[] rulePasses,
+			int evaluated, ValidationPlan plan, JsonObject toValidate,
+			DocumentIndex index) {
+		this.pass = pass;
+		this.rules = rules;
+		this.rulePasses = rulePasses;
+		this.evaluated = evaluated;
+		this.outcomes = null;
+		this.plan = plan;
+		this.toValidate = toValidate;
+		this.index = index;
+	}
+
+	/**
+	 *
+	 * @return whether the JSON passed every rule
+	 */
+	public boolean isPass() {
+		return pass;
+	}
+
+	/**
+	 *
+	 * @return the number of rules validated
+	 */
+	public int size() {
+		return rules.length;
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule in the plan
+	 * @return a copy of the validation json of the rule, null if the rule was
+	 *         not a JSON object
+	 */
+	public JsonObject getRule(int index) {
+		return ValidationPlan.copy(rules[index]);
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule in the plan
+	 * @return whether the JSON passed the rule, false if the rule was invalid
+	 *         or not evaluated
+	 */
+	public boolean isPass(int index) {
+		return rulePasses[index];
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule in the plan
+	 * @return whether the rule was evaluated, false only for the rules after
+	 *         the first failure of a fail fast check
+	 */
+	public boolean isEvaluated(int index) {
+		return index < evaluated;
+	}
+
+	/**
+	 *
+	 * @return the index of the first rule that failed, -1 if every rule
+	 *         passed
+	 */
+	public int failedRule() {
+		for (int i = 0; i < evaluated; i++) {
+			if (!rulePasses[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            - the index of the rule in the plan
+	 * @return new result details of the rule, in the format described in
+	 *         ValidationWorker, null if the rule was invalid
+	 */
+	public JsonObject getDetails(int index) {
+		if (outcomes == null) {
+			if (!plan.isValid(index)) {
+				return null;
+			}
+			return ValidationWorker.evaluate(plan.getUnit(index), toValidate,
+					this.index);
+		}
+		if (outcomes[index] == null) {
+			return null;
+		}
+		return outcomes[index].toJson();
+	}
+
+	/**
+	 * The details of the rules evaluated keyed by the validation json of the
+	 * rule, in the same format as JsonValidator.getLastValidationDetail
+	 *
+	 * @return a new HashMap of the validation details
+	 */
+	public HashMap<JsonObject, JsonObject> toDetailMap() {
+		HashMap<JsonObject, JsonObject> detailMap = new HashMap<JsonObject, JsonObject>();
+		for (int i = 0; i < evaluated; i++) {
+			JsonObject ruleDetails = getDetails(i);
+			if (ruleDetails == null) {
+				continue;
+			}
+			// a copy, the plan the rule is held by is shared
+			detailMap.put(ValidationPlan.copy(rules[i]),
+					detailEntry(rulePasses[i], ruleDetails));
+		}
+		return detailMap;
+	}
+
+	/**
+	 * Wraps the details of a rule with whether it passed
+	 *
+	 * @param rulePass
+	 *            - whether the rule passed
+	 * @param ruleDetails
+	 *            - the result details of the rule
+	 * @return the detail entry of the rule
+	 */
+	private static JsonObject detailEntry(boolean rulePass,
+			JsonObject ruleDetails) {
+		JsonObject resultObject = new JsonObject();
+		resultObject.addProperty(JsonValidator.VALIDATION_RESULT, rulePass);
+		resultObject.add(JsonValidator.VALIDATION_DETAILS, ruleDetails);
+		return resultObject;
+	}
+}
@@ -1,6 +1,10 @@
 package com.gnof.core;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import com.gnof.exceptions.InvalidValidationJson;
 import com.google.gson.*;
@@ -14,6 +18,12 @@ import com.google.gson.*;
  */
 public class ValidationUnit {
 
+	/**
+	 * The validation json the unit was compiled from, a copy of a unit keeps
+	 * the one of the unit it copies
+	 */
+	private JsonObject validationJson;
+
 	/**
 	 * The attribute to validate
 	 */
@@ -37,6 +47,12 @@ public class ValidationUnit {
 	 */
 	private Object composite;
 
+	/**
+	 * the composite validations compiled once up front, in the same order as
+	 * they appear in composite. An entry is null if that composite was invalid
+	 */
+	private List<ValidationUnit> compositeUnits;
+
 	/**
 	 * a sorted list that comprehensively lists a path from the root to the
 	 * attribute
@@ -48,17 +64,38 @@ public class ValidationUnit {
 	 */
 	private Object ancestor;
 
+	/**
+	 * the expected values hashed once up front, null if there is no value
+	 */
+	private Multiset valueSet;
+
+	/**
+	 * the expected hierarchy paths hashed once up front, null if there is no
+	 * hierarchy
+	 */
+	private Multiset hierarchySet;
+
+	/**
+	 * the expected ancestors hashed once up front, null if there is no
+	 * ancestor
+	 */
+	private Set<Object> ancestorSet;
+
 	/**
 	 * Constructor that clones another ValidationUnit but removes the composite key
 	 * @param another - the ValidationUnit to copy
 	 */
 	public ValidationUnit(ValidationUnit another)
 	{
+		this.validationJson = another.validationJson;
 		this.attribute = another.attribute;
 		this.value = another.value;
 		this.quantity = another.quantity;
 		this.hierarchy = another.hierarchy;
 		this.ancestor = another.ancestor;		
+		this.valueSet = another.valueSet;
+		this.hierarchySet = another.hierarchySet;
+		this.ancestorSet = another.ancestorSet;
 	}
 	
 	/**
@@ -75,6 +112,7 @@ public class ValidationUnit {
 					"'attribute' missing from Validation JSON");
 		}
 
+		this.validationJson = validationJson;
 		JsonElement attributeElement = validationJson.get("attribute");
 		attribute = attributeElement.getAsString();
 
@@ -142,7 +180,7 @@ public class ValidationUnit {
 				System.out.println("Composite Element Not Recognized: " + compositeElement);
 				composite = null;
 			}
-			
+			compositeUnits = compileComposite(composite);
 		}
 
 		if (validationJson.has("hierarchy")) {
@@ -174,6 +212,73 @@ public class ValidationUnit {
 			}
 
 		}
+
+		compileSets();
+	}
+
+	/**
+	 * Hashes the expected values, hierarchy paths and ancestors so that they
+	 * can be matched in a single pass over what is found in a json
+	 */
+	@SuppressWarnings("unchecked")
+	private void compileSets() {
+		if (value instanceof ArrayList) {
+			valueSet = new Multiset((ArrayList<Object>) value);
+		} else if (value != null) {
+			valueSet = new Multiset(Collections.singletonList(value));
+		}
+
+		if (hierarchy instanceof ArrayList) {
+			// paths that aren't lists of keys can never be found
+			ArrayList<PathNode> paths = new ArrayList<PathNode>();
+			for (Object path : (ArrayList<Object>) hierarchy) {
+				paths.add(path instanceof List ? PathNode.of((List<?>) path)
+						: null);
+			}
+			hierarchySet = new Multiset(paths);
+		}
+
+		if (ancestor instanceof ArrayList) {
+			ancestorSet = Collections.unmodifiableSet(new HashSet<Object>(
+					(ArrayList<Object>) ancestor));
+		} else if (ancestor != null) {
+			ancestorSet = Collections.singleton(ancestor);
+		}
+	}
+
+	/**
+	 * Compiles the composite validation json into validation units so that
+	 * they don't have to be parsed again for every json that is validated
+	 * 
+	 * @param compositeObject
+	 *            - a JsonArray or JsonObject of composite validations
+	 * @return list of composite validation units, null entries for invalid
+	 *         composites
+	 */
+	private static List<ValidationUnit> compileComposite(
+			Object compositeObject) {
+		ArrayList<ValidationUnit> units = new ArrayList<ValidationUnit>();
+		JsonArray compositeValidations = new JsonArray();
+		if (compositeObject instanceof JsonArray) {
+			compositeValidations = (JsonArray) compositeObject;
+		} else if (compositeObject instanceof JsonObject) {
+			compositeValidations.add((JsonObject) compositeObject);
+		} else {
+			return Collections.unmodifiableList(units);
+		}
+
+		for (JsonElement comp : compositeValidations) {
+			ValidationUnit unit = null;
+			if (comp.isJsonObject()) {
+				try {
+					unit = new ValidationUnit(comp.getAsJsonObject());
+				} catch (InvalidValidationJson e) {
+					unit = null;
+				}
+			}
+			units.add(unit);
+		}
+		return Collections.unmodifiableList(units);
 	}
 
 	/**
@@ -225,6 +330,16 @@ public class ValidationUnit {
 		return composite;
 	}
 
+	/**
+	 * compiled composite Getter
+	 * 
+	 * @return list of composite ValidationUnits, null entries are invalid
+	 *         composites
+	 */
+	public List<ValidationUnit> getCompositeUnits() {
+		return compositeUnits;
+	}
+
 	/**
 	 * ancestor Getter
 	 * 
@@ -234,6 +349,15 @@ public class ValidationUnit {
 		return ancestor;
 	}
 
+	/**
+	 * 
+	 * @return the validation json the unit was compiled from, which tells
+	 *         its rule apart from other rules on the same attribute
+	 */
+	JsonObject getValidationJson() {
+		return validationJson;
+	}
+
 	/**
 	 * attribute Getter
 	 * 
@@ -261,6 +385,31 @@ public class ValidationUnit {
 		return value;
 	}
 
+	/**
+	 * 
+	 * @return the expected values as a multiset, null if there is no value
+	 */
+	Multiset getValueSet() {
+		return valueSet;
+	}
+
+	/**
+	 * 
+	 * @return the expected hierarchy paths as a multiset, null if there is no
+	 *         hierarchy
+	 */
+	Multiset getHierarchySet() {
+		return hierarchySet;
+	}
+
+	/**
+	 * 
+	 * @return the expected ancestors, null if there is no ancestor
+	 */
+	Set<Object> getAncestorSet() {
+		return ancestorSet;
+	}
+
 	/**
 	 * quantity Getter
 	 * 
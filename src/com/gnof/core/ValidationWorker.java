@@ -1,12 +1,13 @@
 package com.gnof.core;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import com.gnof.exceptions.InvalidValidationJson;
+import com.gnof.metrics.Check;
+import com.gnof.metrics.ValidationMetrics;
 import com.google.gson.*;
 
 /**
@@ -73,13 +74,28 @@ public class ValidationWorker {
 	 * defaults false before validate has been run.
 	 */
 	private boolean overallPass;
+	/**
+	 * what the validations are reported to
+	 */
+	private final ValidationMetrics metrics;
 
 	/**
 	 * Default constructor
 	 */
 	public ValidationWorker() {
+		this(ValidationMetrics.NONE);
+	}
+
+	/**
+	 * Constructor reporting the validations to metrics
+	 * 
+	 * @param metrics
+	 *            - what the validations are reported to
+	 */
+	public ValidationWorker(ValidationMetrics metrics) {
 		resultData = null;
 		overallPass = false;
+		this.metrics = metrics;
 	}
 
 	/**
@@ -93,109 +109,474 @@ public class ValidationWorker {
 	 * @return = a JSON object with validation results
 	 */
 	public JsonObject validate(ValidationUnit vu, JsonObject toValidate) {
-		JsonObject resultData = new JsonObject();
+		return validate(vu, toValidate,
+				DocumentIndex.build(toValidate, metrics));
+	}
+
+	/**
+	 * Validates a JsonObject based on the validation criteria passed in, using
+	 * an index of the json that was already built
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated
+	 * @param index
+	 *            - the index of toValidate
+	 * @return = a JSON object with validation results
+	 */
+	public JsonObject validate(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index) {
+		RuleEvent event = new RuleEvent();
+		event.begin();
+		RuleOutcome outcome = outcome(vu, toValidate, index,
+				new SubtreeIndexes(toValidate, index), metrics);
+		// the verdict comes from the masks, the result data is only built
+		// to be returned
+		this.overallPass = outcome.isPass();
+		this.resultData = outcome.toJson();
+		commit(event, vu, overallPass, true, index);
+		return resultData;
+	}
+
+	/**
+	 * Validates a JsonObject based on the validation criteria passed in,
+	 * without keeping the result in a worker
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @return = a JSON object with validation results
+	 */
+	static JsonObject evaluate(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index) {
+		return evaluate(vu, toValidate, index, new SubtreeIndexes(toValidate,
+				index));
+	}
+
+	/**
+	 * Validates a JsonObject based on the validation criteria passed in,
+	 * without keeping the result in a worker, reusing the indexes of the
+	 * objects composite validations look at
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param subtrees
+	 *            - the indexes of the objects of toValidate
+	 * @return = a JSON object with validation results
+	 */
+	static JsonObject evaluate(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index, SubtreeIndexes subtrees) {
+		return evaluate(vu, toValidate, index, subtrees, ValidationMetrics.NONE);
+	}
+
+	/**
+	 * Validates a JsonObject based on the validation criteria passed in, like
+	 * evaluate, reporting the rule and its checks to metrics
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param subtrees
+	 *            - the indexes of the objects of toValidate
+	 * @param metrics
+	 *            - what the validation is reported to
+	 * @return = a JSON object with validation results
+	 */
+	static JsonObject evaluate(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index, SubtreeIndexes subtrees,
+			ValidationMetrics metrics) {
+		return outcome(vu, toValidate, index, subtrees, metrics).toJson();
+	}
+
+	/**
+	 * Validates a JsonObject based on the validation criteria passed in, like
+	 * evaluate, keeping what each check found as a RuleOutcome instead of
+	 * building the result data
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param subtrees
+	 *            - the indexes of the objects of toValidate
+	 * @param metrics
+	 *            - what the validation is reported to
+	 * @return what the validation found
+	 */
+	static RuleOutcome outcome(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index, SubtreeIndexes subtrees,
+			ValidationMetrics metrics) {
+		boolean timed = metrics.isEnabled();
+		long ruleStart = now(timed);
 
 		// the main attribute to look for, not optional
 		String attribute = vu.getAttribute();
-		// the value we're looking for, optional
-		Object value;
-
-		// Processing the JSON for some data we'll use shortly
-		HashMap<String, JsonObject> objectData = gatherObjectData(toValidate);
 
 		// We do this explicitly because all other validations pretty much
 		// rely on this
-		boolean hasAttribute = objectData.containsKey(attribute);
-		resultData.addProperty(HAS_ATTRIBUTE, hasAttribute);
+		boolean hasAttribute = index.hasKey(attribute);
+		RuleOutcome outcome = new RuleOutcome(hasAttribute);
 
-		JsonObject attributeData = objectData.get(attribute);
 		// We'll only instantiate this if we need it
-		ArrayList<ArrayList<String>> paths = null;
+		ArrayList<PathNode> paths = null;
 
 		// if quantity attribute exists, we validate
 		if (vu.hasQuantity()) {
+			long start = now(timed);
 			if (!hasAttribute) {
-				resultData.addProperty(MATCH_QUANTITY, false);
-				resultData.addProperty(QUANTITY_FOUND, 0);
+				outcome.verdict(RuleOutcome.QUANTITY, false);
 			} else {
-				int attributeCount = attributeData.get("count").getAsInt();
-				resultData.addProperty(MATCH_QUANTITY,
+				int attributeCount = index.count(attribute);
+				outcome.verdict(RuleOutcome.QUANTITY,
 						attributeCount == vu.getQuantity());
-				resultData.addProperty(QUANTITY_FOUND, attributeCount);
+				outcome.quantityFound = attributeCount;
+			}
+			if (timed) {
+				metrics.checkEvaluated(Check.QUANTITY, attribute,
+						outcome.isPass(RuleOutcome.QUANTITY), System.nanoTime()
+								- start);
 			}
 		}
 
 		// if the value attribute exists, we need to perform this validation
 		if (vu.hasValue()) {
+			long start = now(timed);
 			if (!hasAttribute) {
-				resultData.addProperty(MATCH_VALUE, false);
-				resultData.addProperty(VALUE_FOUND, "none");
-			} else {				
-				JsonArray attributeValues = attributeData.get("values")
-						.getAsJsonArray();
-				boolean valuesVerification = valueVerificationHelper(vu,
-						attributeValues);
-				resultData.addProperty(MATCH_VALUE, valuesVerification);
-				resultData.add(VALUE_FOUND, attributeValues);
+				outcome.verdict(RuleOutcome.VALUE, false);
+			} else {
+				List<JsonElement> attributeValues = index.valueList(attribute);
+				outcome.verdict(RuleOutcome.VALUE,
+						valueVerificationHelper(vu, attributeValues));
+				outcome.valuesFound = attributeValues;
+			}
+			if (timed) {
+				metrics.checkEvaluated(Check.VALUE, attribute,
+						outcome.isPass(RuleOutcome.VALUE), System.nanoTime() - start);
 			}
 		}
 
 		// validate composite identifier if necessary
 		if (vu.hasComposite()) {
+			long start = now(timed);
 			if (!hasAttribute) {
-				resultData.addProperty(MATCH_COMPOSITE, false);
-				resultData.addProperty(COMPOSITE_RESULT, "none");
+				outcome.verdict(RuleOutcome.COMPOSITE, false);
 			} else {
-				compositeVerificationHelper(vu, toValidate, resultData);
+				compositeVerificationHelper(vu, toValidate, outcome, subtrees);
+			}
+			if (timed) {
+				// a unit without composite units writes no verdict
+				metrics.checkEvaluated(Check.COMPOSITE, attribute,
+						!outcome.isChecked(RuleOutcome.COMPOSITE)
+								|| outcome.isPass(RuleOutcome.COMPOSITE),
+						System.nanoTime() - start);
 			}
 		}
 
 		// validate ancestors if necessary
 		if (vu.hasAncestor()) {
 			if (!hasAttribute) {
-				resultData.addProperty(MATCH_ANCESTOR, false);
-				resultData.addProperty(ANCESTOR_FOUND, "none");
+				outcome.verdict(RuleOutcome.ANCESTOR, false);
 			} else {
 				if (paths == null) {
-					value = vu.getValue();
-					paths = findAttribute(toValidate, attribute, value);
+					paths = pathNodes(vu, index, metrics);
 				}
 
-				JsonObject ancestorResult = ancestorVerificationHelper(vu,
-						paths, toValidate);
-				boolean ancestorVerification = ancestorResult.get("result")
-						.getAsBoolean();
-				String ancestors = ancestorResult.get("ancestors")
-						.getAsString();
-				resultData.addProperty(MATCH_ANCESTOR, ancestorVerification);
-				resultData.addProperty(ANCESTOR_FOUND, ancestors);
+				long start = now(timed);
+				Set<String> ancestors = ancestorVerificationHelper(vu, paths,
+						toValidate);
+				// if ancestors is not empty, then it was found and this check
+				// passed
+				outcome.verdict(RuleOutcome.ANCESTOR, !ancestors.isEmpty());
+				outcome.ancestorsFound = ancestors;
+				if (timed) {
+					metrics.checkEvaluated(Check.ANCESTOR, attribute,
+							!ancestors.isEmpty(), System.nanoTime() - start);
+				}
 			}
 		}
 
 		// validate hierarchy if necessary
 		if (vu.hasHierarchy()) {
 			if (!hasAttribute) {
-				resultData.addProperty(MATCH_HIERARCHY, false);
-				resultData.addProperty(HIERARCHY_FOUND, "none");
-			} else {				
+				outcome.verdict(RuleOutcome.HIERARCHY, false);
+			} else {
 				if (paths == null) {
-					value = vu.getValue();
-					paths = findAttribute(toValidate, attribute, value);
+					paths = pathNodes(vu, index, metrics);
 				}
 
+				long start = now(timed);
 				boolean hierarchyVerification = hierarchyVerificationHelper(vu,
 						paths, toValidate);
-				Gson gson = new Gson();
-				JsonElement pathElement = gson.toJsonTree(paths);
-				resultData.addProperty(MATCH_HIERARCHY, hierarchyVerification);
-				resultData.add(HIERARCHY_FOUND, pathElement);
+				outcome.verdict(RuleOutcome.HIERARCHY, hierarchyVerification);
+				outcome.hierarchyFound = paths;
+				if (timed) {
+					metrics.checkEvaluated(Check.HIERARCHY, attribute,
+							hierarchyVerification, System.nanoTime() - start);
+				}
 			}
 
 		}
 
-		this.resultData = resultData;
-		updateOverall();
-		return resultData;
+		if (timed) {
+			metrics.ruleEvaluated(vu.getValidationJson(), attribute,
+					outcome.isPass(), System.nanoTime() - ruleStart);
+		}
+		return outcome;
+	}
+
+	/**
+	 * Whether a JsonObject passes the validation criteria passed in. Gives the
+	 * same verdict as outcome, without keeping anything the checks found
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @return whether every check of the validation passed
+	 */
+	static boolean passes(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index) {
+		return passes(vu, toValidate, index, new SubtreeIndexes(toValidate,
+				index));
+	}
+
+	/**
+	 * Whether a JsonObject passes the validation criteria passed in, like
+	 * passes, reusing the indexes of the objects composite validations look at
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param subtrees
+	 *            - the indexes of the objects of toValidate
+	 * @return whether every check of the validation passed
+	 */
+	static boolean passes(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index, SubtreeIndexes subtrees) {
+		return passes(vu, toValidate, index, subtrees, ValidationMetrics.NONE);
+	}
+
+	/**
+	 * Whether a JsonObject passes the validation criteria passed in, like
+	 * passes, reporting the rule and the checks made to metrics
+	 * 
+	 * @param vu
+	 *            - the validation unit specifying the criteria of the json
+	 *            expected
+	 * @param toValidate
+	 *            - the target json to be validated, only needed if the unit
+	 *            has composite validations
+	 * @param index
+	 *            - the index of toValidate
+	 * @param subtrees
+	 *            - the indexes of the objects of toValidate
+	 * @param metrics
+	 *            - what the validation is reported to
+	 * @return whether every check of the validation passed
+	 */
+	static boolean passes(ValidationUnit vu, JsonObject toValidate,
+			DocumentIndex index, SubtreeIndexes subtrees,
+			ValidationMetrics metrics) {
+		boolean timed = metrics.isEnabled();
+		long ruleStart = now(timed);
+		String attribute = vu.getAttribute();
+		boolean hasAttribute = index.hasKey(attribute);
+
+		if (vu.hasQuantity()) {
+			long start = now(timed);
+			boolean pass = hasAttribute
+					&& index.count(attribute) == vu.getQuantity();
+			if (timed) {
+				metrics.checkEvaluated(Check.QUANTITY, attribute, pass,
+						System.nanoTime() - start);
+			}
+			if (!pass) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+		}
+
+		if (vu.hasValue()) {
+			long start = now(timed);
+			boolean pass = hasAttribute
+					&& valueVerificationHelper(vu, index.valueList(attribute));
+			if (timed) {
+				metrics.checkEvaluated(Check.VALUE, attribute, pass,
+						System.nanoTime() - start);
+			}
+			if (!pass) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+		}
+
+		if (vu.hasComposite()) {
+			long start = now(timed);
+			boolean pass = hasAttribute
+					&& compositePasses(vu, toValidate, subtrees);
+			if (timed) {
+				metrics.checkEvaluated(Check.COMPOSITE, attribute, pass,
+						System.nanoTime() - start);
+			}
+			if (!pass) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+		}
+
+		ArrayList<PathNode> paths = null;
+		if (vu.hasAncestor()) {
+			if (!hasAttribute) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+			paths = pathNodes(vu, index, metrics);
+			long start = now(timed);
+			boolean pass = ancestorPasses(vu, paths);
+			if (timed) {
+				metrics.checkEvaluated(Check.ANCESTOR, attribute, pass,
+						System.nanoTime() - start);
+			}
+			if (!pass) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+		}
+
+		if (vu.hasHierarchy()) {
+			if (!hasAttribute) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+			if (paths == null) {
+				paths = pathNodes(vu, index, metrics);
+			}
+			long start = now(timed);
+			boolean pass = hierarchyVerificationHelper(vu, paths, toValidate);
+			if (timed) {
+				metrics.checkEvaluated(Check.HIERARCHY, attribute, pass,
+						System.nanoTime() - start);
+			}
+			if (!pass) {
+				return verdict(vu, false, metrics, ruleStart);
+			}
+		}
+
+		return verdict(vu, true, metrics, ruleStart);
+	}
+
+	/**
+	 * Reports the verdict of a rule to metrics
+	 * 
+	 * @param vu
+	 *            - the validation unit of the rule
+	 * @param pass
+	 *            - the verdict
+	 * @param metrics
+	 *            - what the rule is reported to
+	 * @param start
+	 *            - when the rule started, if metrics are enabled
+	 * @return the verdict
+	 */
+	private static boolean verdict(ValidationUnit vu, boolean pass,
+			ValidationMetrics metrics, long start) {
+		if (metrics.isEnabled()) {
+			metrics.ruleEvaluated(vu.getValidationJson(), vu.getAttribute(),
+					pass, System.nanoTime() - start);
+		}
+		return pass;
+	}
+
+	/**
+	 * Looks up the paths to the attribute of a unit, reporting the search to
+	 * metrics
+	 * 
+	 * @param vu
+	 *            - the validation unit
+	 * @param index
+	 *            - the index to look in
+	 * @param metrics
+	 *            - what the search is reported to
+	 * @return the paths to the attribute with the value of the unit
+	 */
+	private static ArrayList<PathNode> pathNodes(ValidationUnit vu,
+			DocumentIndex index, ValidationMetrics metrics) {
+		PathSearchEvent event = new PathSearchEvent();
+		event.begin();
+		long start = now(metrics.isEnabled());
+		ArrayList<PathNode> paths = index.pathNodes(vu.getAttribute(),
+				vu.getValueSet());
+		if (metrics.isEnabled()) {
+			metrics.pathsSearched(vu.getAttribute(), paths.size(),
+					System.nanoTime() - start);
+		}
+		if (event.shouldCommit()) {
+			event.attribute = vu.getAttribute();
+			event.paths = paths.size();
+			event.documentSize = index.size();
+			event.commit();
+		}
+		return paths;
+	}
+
+	/**
+	 * Commits the flight recorder event of a rule if it is recorded
+	 * 
+	 * @param event
+	 *            - the event, begun before the rule was evaluated
+	 * @param vu
+	 *            - the validation unit of the rule
+	 * @param pass
+	 *            - whether the rule passed
+	 * @param details
+	 *            - whether the result details were built
+	 * @param index
+	 *            - the index of the json validated
+	 */
+	static void commit(RuleEvent event, ValidationUnit vu, boolean pass,
+			boolean details, DocumentIndex index) {
+		if (event.shouldCommit()) {
+			event.attribute = vu.getAttribute();
+			event.passed = pass;
+			event.details = details;
+			event.documentSize = index.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * 
+	 * @param timed
+	 *            - whether the time is needed
+	 * @return the current time in nanoseconds if it is needed, 0 otherwise
+	 */
+	private static long now(boolean timed) {
+		return timed ? System.nanoTime() : 0;
 	}
 
 	/**
@@ -215,28 +596,6 @@ public class ValidationWorker {
 		return overallPass;
 	}
 
-	/**
-	 * Internal method to update overall result when validate is run for the
-	 * first time right now, it checks the results keys prepended with 'match'
-	 */
-	private void updateOverall() {
-		if (resultData != null) {
-			Set<Entry<String, JsonElement>> results = resultData.entrySet();
-			boolean runningResult = true;
-			for (Entry<String, JsonElement> result : results) {
-				String currResult = result.getKey();
-				if (currResult.startsWith("match-")) {
-					boolean testResult = result.getValue().getAsBoolean();
-					runningResult = runningResult && testResult;
-				}
-			}
-			this.overallPass = runningResult;
-		} else {
-			System.out
-					.println("Result Data is null, overall pass remains false");
-		}
-	}
-
 	/**
 	 * Value Verification helper method
 	 * 
@@ -248,20 +607,11 @@ public class ValidationWorker {
 	 *            - the reporting result data
 	 * @return whether the value verification passed
 	 */
-	@SuppressWarnings("unchecked")
-	private boolean valueVerificationHelper(ValidationUnit vu,
-			JsonArray attributeValues) {
-		Object validationValues = vu.getValue();
-
-		ArrayList<String> valuesToValidate = new ArrayList<String>();
-		if (validationValues instanceof ArrayList) {
-			valuesToValidate = new ArrayList<String>((ArrayList<String>)validationValues);
-		} else {
-			valuesToValidate.add((String) validationValues);
-		}
+	private static boolean valueVerificationHelper(ValidationUnit vu,
+			Iterable<JsonElement> attributeValues) {
+		Multiset.Cover valuesFound = vu.getValueSet().cover();
 
-		for (int i = 0; i < attributeValues.size(); i++) {
-			JsonElement currJsonVal = attributeValues.get(i);
+		for (JsonElement currJsonVal : attributeValues) {
 			String currValue;
 			if (currJsonVal.isJsonArray())
 			{
@@ -270,17 +620,17 @@ public class ValidationWorker {
 			} 
 			else
 			{
-				currValue = attributeValues.get(i).getAsString();
+				currValue = currJsonVal.getAsString();
 			}
-			if (valuesToValidate.contains(currValue)) {
-				valuesToValidate.remove(currValue);
+			// once we've seen all the values we were expecting, we're done
+			if (valuesFound.add(currValue)) {
+				return true;
 			}
 		}
-		// If valuesToValidate is empty, then we've seen all the values we were
-		// expecting
-		return valuesToValidate.isEmpty();
+		return valuesFound.isCovered();
 	}
 
+
 	/**
 	 * Hierarchy verification helper method
 	 * 
@@ -292,21 +642,19 @@ public class ValidationWorker {
 	 *            - the paths that have been gathered to the attribute specified
 	 * @return whether the hierarchy verification passed
 	 */
-	@SuppressWarnings("unchecked")
-	private boolean hierarchyVerificationHelper(ValidationUnit vu,
-			ArrayList<ArrayList<String>> paths, JsonObject toValidate) {
-		Object hierarchyValues = vu.getHierarchy();
-		ArrayList<ArrayList<String>> pathsToValidate = new ArrayList<ArrayList<String>>((ArrayList<ArrayList<String>>)hierarchyValues);
-
-		for (ArrayList<String> path : paths) {
-			if (pathsToValidate.contains(path)) {
-				pathsToValidate.remove(path);
+	private static boolean hierarchyVerificationHelper(ValidationUnit vu,
+			ArrayList<PathNode> paths, JsonObject toValidate) {
+		// every path found uses up one of the expected paths
+		Multiset.Cover pathsFound = vu.getHierarchySet().cover();
+		for (PathNode path : paths) {
+			if (pathsFound.add(path)) {
+				return true;
 			}
 		}
-
-		return pathsToValidate.size() == 0;
+		return pathsFound.isCovered();
 	}
 
+
 	/**
 	 * Helper method to perform ancestor verification
 	 * 
@@ -316,96 +664,239 @@ public class ValidationWorker {
 	 *            - the json to validate
 	 * @param paths
 	 *            - the paths that have been gathered to the attribute specified
-	 * @return JsonObject of whether the the validation passed, and the
-	 *         ancestors found
+	 * @return the keys of the paths holding every ancestor, empty if the
+	 *         validation failed
 	 */
-	@SuppressWarnings("unchecked")
-	private JsonObject ancestorVerificationHelper(ValidationUnit vu,
-			ArrayList<ArrayList<String>> paths, JsonObject toValidate) {
-		Object ancestorValues = vu.getAncestor();
-
-		ArrayList<String> ancestorsToValidate = new ArrayList<String>();
-		if (ancestorValues instanceof ArrayList) {
-			ancestorsToValidate = new ArrayList<String>((ArrayList<String>) ancestorValues);
-		} else {
-			ancestorsToValidate.add((String) ancestorValues);
-		}
+	private static Set<String> ancestorVerificationHelper(ValidationUnit vu,
+			ArrayList<PathNode> paths, JsonObject toValidate) {
+		Set<Object> ancestorsToValidate = vu.getAncestorSet();
 
 		HashSet<String> ancestors = new HashSet<String>();
-		for (ArrayList<String> path : paths) {
-			if(path.containsAll(ancestorsToValidate))
+		for (PathNode path : paths) {
+			if(containsAll(path, ancestorsToValidate))
 			{
-				ancestors.addAll(path);				
+				ancestors.addAll(path.toList());
 			}
 		}
 
-		JsonObject ancestorResult = new JsonObject();
-		// if ancestors is not empty, then it was found and this check passed
-		ancestorResult.addProperty("result", !ancestors.isEmpty());
-		ancestorResult.addProperty("ancestors", ancestors.toString());
-		return ancestorResult;
+		return ancestors;
 	}
 
+
 	/**
-	 * Helper method to verify composite key
+	 * Whether the ancestors are found on one of the paths, the verdict of
+	 * ancestorVerificationHelper without gathering the ancestors
+	 * 
+	 * @param vu
+	 *            - Validation unit criteria
+	 * @param paths
+	 *            - the paths that have been gathered to the attribute specified
+	 * @return whether the ancestor verification passed
+	 */
+	private static boolean ancestorPasses(ValidationUnit vu,
+			ArrayList<PathNode> paths) {
+		Set<Object> ancestorsToValidate = vu.getAncestorSet();
+
+		for (PathNode path : paths) {
+			// an empty path adds no ancestors
+			if (path.depth() > 0 && containsAll(path, ancestorsToValidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * 
+	 * @param path
+	 *            - the path to look in
+	 * @param ancestors
+	 *            - the ancestors to look for
+	 * @return whether every ancestor is a key of the path
+	 */
+	private static boolean containsAll(PathNode path, Set<Object> ancestors) {
+		if (ancestors.isEmpty()) {
+			return true;
+		}
+		// a key can be in the path more than once, so the distinct ancestors
+		// hit are counted
+		HashSet<String> hit = null;
+		for (PathNode p = path; p.depth() > 0; p = p.parent()) {
+			if (ancestors.contains(p.key())) {
+				if (hit == null) {
+					hit = new HashSet<String>();
+				}
+				hit.add(p.key());
+				if (hit.size() == ancestors.size()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Whether the composite validations pass, the verdict of
+	 * compositeVerificationHelper without building the composite results.
+	 * Stops at the first context that fails
 	 * 
 	 * @param vu
 	 *            - the original validation unit
 	 * @param toValidate
 	 *            - the json to validate
+	 * @param subtrees
+	 *            - the indexes of the objects of the json
+	 * @return whether the composite verification passed
 	 */
-	private void compositeVerificationHelper(ValidationUnit vu,
-			JsonObject toValidate, JsonObject resultData) {
-		Object validationObject = vu.getComposite();
-		JsonArray compositeValidations = new JsonArray();
-		if (validationObject instanceof JsonArray) {
-			compositeValidations = (JsonArray) validationObject;
-		} else if (validationObject instanceof JsonObject) {
-			compositeValidations.add((JsonObject) validationObject);
-		} else {
-			System.out
-					.println("Unrecognized Composite Validation Object. Not performing composite");
-			return;
+	private static boolean compositePasses(ValidationUnit vu,
+			JsonObject toValidate, SubtreeIndexes subtrees) {
+		List<ValidationUnit> composites = vu.getCompositeUnits();
+		if (composites.isEmpty()) {
+			return true;
+		}
+		// every composite writes match-composite over the one before it, so
+		// the last composite decides the detailed verdict
+		ValidationUnit composite = composites.get(composites.size() - 1);
+		if (composite == null) {
+			return false;
+		}
+
+		ValidationUnit vuMinusComp = new ValidationUnit(vu);
+		CompositeSearchEvent event = new CompositeSearchEvent();
+		event.begin();
+		int contexts = contextsPass(composite, vuMinusComp, toValidate,
+				subtrees);
+		// no contexts found is a fail too
+		boolean pass = contexts > 0;
+		if (event.shouldCommit()) {
+			event.attribute = vu.getAttribute();
+			event.compositeAttribute = composite.getAttribute();
+			event.contexts = contexts;
+			event.passed = pass;
+			event.documentSize = subtrees.index(toValidate).size();
+			event.commit();
 		}
+		return pass;
+	}
 
-		for (JsonElement comp : compositeValidations) {
-			JsonObject currCompositeObject = (JsonObject) comp;
-			ValidationUnit composite;
-			try {
-				boolean overallCompositeResult = true;
-				composite = new ValidationUnit(currCompositeObject);
-
-				// get the contexts that match each of the composite
-				// keys
-				JsonArray contexts = getJsonContext(composite, toValidate);
-				JsonArray compositeResultCollection = new JsonArray();
-
-				// if contexts is empty, we didn't find any matching contexts
-				// and we
-				// will mark as a fail
-				if (contexts.size() == 0) {
-					overallCompositeResult = false;
-				} else {
-					// we need a clone of the validation unit used in the
-					// original request, minus the composite key
-					// otherwise we have an infinite loop :)
-					ValidationUnit vuMinusComp = new ValidationUnit(vu);
-
-					for (JsonElement context : contexts) {
-						ValidationWorker vw = new ValidationWorker();
-						JsonObject contextObject = (JsonObject) context;
-						JsonObject compositeResult = vw.validate(vuMinusComp,
-								contextObject);
-						compositeResultCollection.add(compositeResult);
-						overallCompositeResult = overallCompositeResult
-								&& vw.isOverallPass();
+	/**
+	 * Helper method to check the contexts of a composite as they are found,
+	 * searching like getJsonContextHelper
+	 * 
+	 * @param composite
+	 *            - the composite validation that finds the contexts
+	 * @param vuMinusComp
+	 *            - the original validation unit without its composites
+	 * @param toSearch
+	 *            - the json to search
+	 * @param subtrees
+	 *            - the indexes of the objects of the json
+	 * @return -1 if a context fails, otherwise the number of contexts found
+	 */
+	private static int contextsPass(ValidationUnit composite,
+			ValidationUnit vuMinusComp, JsonObject toSearch,
+			SubtreeIndexes subtrees) {
+		if (toSearch.has(composite.getAttribute())) {
+			DocumentIndex contextIndex = subtrees.index(toSearch);
+			if (!passes(composite, toSearch, contextIndex, subtrees)) {
+				return 0;
+			}
+			return passes(vuMinusComp, toSearch, contextIndex, subtrees) ? 1
+					: -1;
+		}
+
+		int found = 0;
+		for (Entry<String, JsonElement> entry : toSearch.entrySet()) {
+			JsonElement currVal = entry.getValue();
+			int currFound = 0;
+			if (currVal instanceof JsonArray) {
+				for (JsonElement j : (JsonArray) currVal) {
+					int elementFound = contextsPass(composite, vuMinusComp,
+							(JsonObject) j, subtrees);
+					if (elementFound < 0) {
+						return -1;
 					}
+					currFound += elementFound;
+				}
+			} else if (currVal instanceof JsonObject) {
+				currFound = contextsPass(composite, vuMinusComp,
+						(JsonObject) currVal, subtrees);
+			}
+			if (currFound < 0) {
+				return -1;
+			}
+			found += currFound;
+		}
+		return found;
+	}
+
+	/**
+	 * Helper method to verify composite key
+	 * 
+	 * @param vu
+	 *            - the original validation unit
+	 * @param toValidate
+	 *            - the json to validate
+	 * @param outcome
+	 *            - the outcome of the validation unit, given the verdict and
+	 *            results of the last composite
+	 * @param subtrees
+	 *            - the indexes of the objects of the json
+	 */
+	private static void compositeVerificationHelper(ValidationUnit vu,
+			JsonObject toValidate, RuleOutcome outcome,
+			SubtreeIndexes subtrees) {
+		// the composites were compiled along with the validation unit
+		for (ValidationUnit composite : vu.getCompositeUnits()) {
+			if (composite == null) {
+				outcome.verdict(RuleOutcome.COMPOSITE, false);
+				outcome.compositeResults = null;
+				continue;
+			}
+
+			boolean overallCompositeResult = true;
+			CompositeSearchEvent event = new CompositeSearchEvent();
+			event.begin();
+
+			// get the contexts that match each of the composite
+			// keys
+			JsonArray contexts = getJsonContext(composite, toValidate,
+					subtrees);
+			RuleOutcome[] compositeResultCollection = new RuleOutcome[contexts
+					.size()];
+
+			// if contexts is empty, we didn't find any matching contexts
+			// and we
+			// will mark as a fail
+			if (contexts.size() == 0) {
+				overallCompositeResult = false;
+			} else {
+				// we need a clone of the validation unit used in the
+				// original request, minus the composite key
+				// otherwise we have an infinite loop :)
+				ValidationUnit vuMinusComp = new ValidationUnit(vu);
+
+				for (int i = 0; i < contexts.size(); i++) {
+					JsonObject contextObject = (JsonObject) contexts.get(i);
+					RuleOutcome compositeResult = outcome(vuMinusComp,
+							contextObject, subtrees.index(contextObject),
+							subtrees, ValidationMetrics.NONE);
+					compositeResultCollection[i] = compositeResult;
+					overallCompositeResult = overallCompositeResult
+							&& compositeResult.isPass();
 				}
-				resultData.addProperty(MATCH_COMPOSITE, overallCompositeResult);
-				resultData.add(COMPOSITE_RESULT, compositeResultCollection);
-			} catch (InvalidValidationJson e) {
-				resultData.addProperty(MATCH_COMPOSITE, false);
-				resultData.addProperty(COMPOSITE_RESULT, "invalid composite");
+			}
+			outcome.verdict(RuleOutcome.COMPOSITE, overallCompositeResult);
+			outcome.compositeResults = compositeResultCollection;
+			if (event.shouldCommit()) {
+				event.attribute = vu.getAttribute();
+				event.compositeAttribute = composite.getAttribute();
+				event.contexts = contexts.size();
+				event.passed = overallCompositeResult;
+				event.documentSize = subtrees.index(toValidate).size();
+				event.commit();
 			}
 		}
 	}
@@ -420,12 +911,15 @@ public class ValidationWorker {
 	 *            - the value of the attribute
 	 * @param toSearch
 	 *            - the json to search
+	 * @param subtrees
+	 *            - the indexes of the objects of the json
 	 * @return - JsonArray of JsonObjects that match the attribute / value
 	 *         criteria
 	 */
-	private JsonArray getJsonContext(ValidationUnit validation,
-			JsonObject toSearch) {
-		return getJsonContextHelper(validation, toSearch, new JsonArray());
+	private static JsonArray getJsonContext(ValidationUnit validation,
+			JsonObject toSearch, SubtreeIndexes subtrees) {
+		return getJsonContextHelper(validation, toSearch, new JsonArray(),
+				subtrees);
 	}
 
 	/**
@@ -440,11 +934,13 @@ public class ValidationWorker {
 	 *            - the json to search
 	 * @param contexts
 	 *            - the collection of contexts
+	 * @param subtrees
+	 *            - the indexes of the objects of the json
 	 * @return - JsonArray of JsonObjects that match the attribute / value
 	 *         criteria
 	 */
-	private JsonArray getJsonContextHelper(ValidationUnit validation,
-			JsonObject toSearch, JsonArray contexts) {
+	private static JsonArray getJsonContextHelper(ValidationUnit validation,
+			JsonObject toSearch, JsonArray contexts, SubtreeIndexes subtrees) {
 
 		String attribute = validation.getAttribute();
 
@@ -452,9 +948,8 @@ public class ValidationWorker {
 		// We do a base level search first, if it's here
 		// then we check the rest of the context for validity
 		if (toSearch.has(attribute)) {
-			ValidationWorker vw = new ValidationWorker();
-			vw.validate(validation, toSearch);
-			boolean validateResult = vw.isOverallPass();
+			boolean validateResult = passes(validation, toSearch,
+					subtrees.index(toSearch), subtrees);
 			if (validateResult) {
 				contexts.add(toSearch);
 			}
@@ -467,184 +962,15 @@ public class ValidationWorker {
 				if (currVal instanceof JsonArray) {
 					for (JsonElement j : (JsonArray) currVal) {
 						getJsonContextHelper(validation, (JsonObject) j,
-								contexts);
+								contexts, subtrees);
 					}
 				} else if (currVal instanceof JsonObject) {
 					getJsonContextHelper(validation, (JsonObject) currVal,
-							contexts);
+							contexts, subtrees);
 				}
 			}
 
 		}
 		return contexts;
 	}
-
-	/**
-	 * Recursively finds all paths to an element and returns a list of those
-	 * paths
-	 * 
-	 * @param tree
-	 *            - the JSON object to traverse
-	 * @param key
-	 *            - the key we're looking for
-	 * @return a list of paths (represented in lists) to the element found
-	 */
-	private ArrayList<ArrayList<String>> findAttribute(JsonObject tree,
-			String key, Object value) {
-		ArrayList<ArrayList<String>> hierarchy = findAttributeHelper(tree, key, value,
-				null, null);
-		return hierarchy;
-	}
-
-	/**
-	 * Helper method to recursively find an attribute in a nested JSON
-	 * 
-	 * @param tree
-	 *            - the json to traverse
-	 * @param key
-	 *            - the key we're looking for
-	 * @param history
-	 *            - the path so far to the new tree
-	 * @param found
-	 *            - a list of found paths so far
-	 * @return - a list of paths (represented in lists) to the attributes
-	 */
-	@SuppressWarnings("unchecked")
-	private ArrayList<ArrayList<String>> findAttributeHelper(JsonObject tree,
-			String key, Object value, ArrayList<String> history,
-			ArrayList<ArrayList<String>> found) {
-		if (history == null) {
-			history = new ArrayList<String>();
-		}
-
-		if (found == null) {
-			found = new ArrayList<ArrayList<String>>();
-		}
-
-		Set<Entry<String, JsonElement>> entrySet = tree.entrySet();
-		for (Entry<String, JsonElement> e : entrySet) {
-			String currKey = e.getKey();
-
-			if (currKey.equals(key)) {
-				boolean add = true;
-				ArrayList<String> values = new ArrayList<String>();
-				if(value != null)
-				{
-					// if we have a value to check, then it's false
-					//until we find it
-					add = false;
-					if (value instanceof ArrayList)
-					{
-						values = (ArrayList<String>) value;
-						
-					}
-					else if (value instanceof String)
-					{
-						values.add((String)value);
-					}
-					
-					for (String v : values)
-					{
-						if(e.getValue().getAsString().equals(v))
-						{
-							add = true;
-						}
-					}
-				}
-				
-				if(add){
-					ArrayList<String> pathToKey = (ArrayList<String>) history
-							.clone();
-					found.add(pathToKey);
-				}
-			} else {
-				JsonElement currVal = e.getValue();
-				history.add(currKey);
-				if (currVal.isJsonObject()) {
-					findAttributeHelper((JsonObject) currVal, key, value, history,
-							found);
-				} else if (currVal.isJsonArray()) {
-					for (JsonElement j : (JsonArray) currVal) {
-						findAttributeHelper((JsonObject) j, key, value, history, found);
-					}
-				}
-				// if we don't find the key, then we want to get rid of the
-				// history for this node
-				history.remove(history.size() - 1);
-			}
-		}
-		return found;
-	}
-
-	/**
-	 * Returns a HashMap of the various metrics of the json object
-	 * 
-	 * @param json
-	 *            the json to analyze
-	 * @return - hashmap of data for json
-	 */
-	private HashMap<String, JsonObject> gatherObjectData(JsonObject json) {
-		HashMap<String, JsonObject> objectData = new HashMap<String, JsonObject>();
-		gatherObjectDataHelper(json, objectData);
-		return objectData;
-	}
-
-	/**
-	 * A helper method to traverse the JSON object to validate and gather the
-	 * keys viewed and their counts and values
-	 * 
-	 * @return HashMap with key as viewed attribute, and value as their count
-	 */
-	private void gatherObjectDataHelper(JsonObject json,
-			HashMap<String, JsonObject> objectData) {
-		Set<Entry<String, JsonElement>> entrySet = json.entrySet();
-
-		for (Entry<String, JsonElement> e : entrySet) {
-			String currKey = e.getKey();
-			JsonElement value = e.getValue();
-			JsonObject currVal = new JsonObject();
-
-			if (objectData.containsKey(currKey)) {
-				currVal = objectData.get(currKey);
-				// increment count
-				int count = currVal.get("count").getAsInt();
-				currVal.remove("count");
-				currVal.addProperty("count", count + 1);
-
-				// append value to list
-				JsonArray valueList = currVal.get("values").getAsJsonArray();
-				valueList.add(value);
-				currVal.remove("values");
-				currVal.add("values", valueList);
-			} else {
-				currVal.addProperty("count", 1);
-				JsonArray valueList = new JsonArray();
-				valueList.add(value);
-				currVal.add("values", valueList);
-			}
-
-			objectData.put(currKey, currVal);
-
-			// handle recursive cases
-			if (value.isJsonObject()) {
-				gatherObjectDataHelper((JsonObject) value, objectData);
-			} else if (value.isJsonArray()) {
-				for (JsonElement j : (JsonArray) value) {
-					//if there's a list of primitives, like strings or ints 
-					if (j.isJsonPrimitive())
-					{
-						JsonArray valueList = currVal.get("values").getAsJsonArray();
-						valueList.add(j);
-						currVal.remove("values");
-						currVal.add("values", valueList);
-						objectData.put(currKey, currVal);						
-					}
-					else
-					{
-						gatherObjectDataHelper((JsonObject) j, objectData);
-					}
-				}
-			}
-		}
-	}
 }
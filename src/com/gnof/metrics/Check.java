@@ -0,0 +1,11 @@
+package com.gnof.metrics;
+
+/**
+ * The checks a validation rule can make, as reported to ValidationMetrics
+ * 
+ * @author kofong
+ * 
+ */
+public enum Check {
+	QUANTITY, VALUE, COMPOSITE, ANCESTOR, HIERARCHY
+}
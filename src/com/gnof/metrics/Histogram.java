@@ -0,0 +1,148 @@
+package com.gnof.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, like times in nanoseconds or sizes, that
+ * can be recorded to from many threads without locking.
+ * 
+ * Values are counted in buckets that split every power of two in eight, so a
+ * percentile is accurate to within an eighth of its value. Values below eight
+ * are counted exactly. The count, total and maximum are exact.
+ * 
+ * @author kofong
+ * 
+ */
+public final class Histogram {
+
+	/**
+	 * the number of buckets every power of two is split in, as a shift
+	 */
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value, negative values are recorded as 0
+	 * 
+	 * @param value
+	 *            - the value
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long currMax = max.get();
+		while (value > currMax && !max.compareAndSet(currMax, value)) {
+			currMax = max.get();
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of values recorded
+	 */
+	public long count() {
+		return count.get();
+	}
+
+	/**
+	 * 
+	 * @return the sum of the values recorded
+	 */
+	public long total() {
+		return total.get();
+	}
+
+	/**
+	 * 
+	 * @return the largest value recorded, 0 if there are none
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * 
+	 * @return the mean of the values recorded, 0 if there are none
+	 */
+	public double mean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	/**
+	 * 
+	 * @param percentile
+	 *            - the percentile, from 0 to 100
+	 * @return the highest value of the bucket the percentile falls in, no
+	 *         higher than the maximum, 0 if there are no values
+	 */
+	public long percentile(double percentile) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * n);
+		if (rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(lowest(i + 1) - 1, max.get());
+			}
+		}
+		return max.get();
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count() + " mean=" + (long) mean() + " p50="
+				+ percentile(50) + " p90=" + percentile(90) + " p99="
+				+ percentile(99) + " max=" + max();
+	}
+
+	/**
+	 * 
+	 * @param value
+	 *            - a non-negative value
+	 * @return the bucket the value is counted in
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * 
+	 * @param bucket
+	 *            - a bucket, up to BUCKETS
+	 * @return the lowest value counted in the bucket
+	 */
+	private static long lowest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		if (bucket == BUCKETS) {
+			return Long.MAX_VALUE;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+}
@@ -0,0 +1,282 @@
+package com.gnof.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonObject;
+
+/**
+ * ValidationMetrics recording into histograms: the sizes of the documents,
+ * the times taken to index them and to search paths, the times of every check
+ * type, and the times and verdicts of every rule. Rules are told apart by the
+ * text of their validation json, so two rules on the same attribute are kept
+ * apart, and a rule is the same rule whichever plan it was compiled into and
+ * however often that plan is compiled again. Only the text of a rule is held,
+ * so the rules recorded grow with the distinct rules validated, not with the
+ * plans.
+ * 
+ * Thread safe, one can be shared by every validator of an application.
+ * 
+ * @author kofong
+ * 
+ */
+public class HistogramMetrics implements ValidationMetrics {
+
+	private final Histogram documentSizes = new Histogram();
+	private final Histogram indexTimes = new Histogram();
+	private final Histogram pathSearchTimes = new Histogram();
+	private final Map<Check, CheckMetrics> checks;
+	private final ConcurrentMap<String, RuleMetrics> rules = new ConcurrentHashMap<String, RuleMetrics>();
+	private final AtomicLong invalidRules = new AtomicLong();
+
+	/**
+	 * Default constructor
+	 */
+	public HistogramMetrics() {
+		// filled up front and never changed, so it is read without locking
+		EnumMap<Check, CheckMetrics> checkMap = new EnumMap<Check, CheckMetrics>(
+				Check.class);
+		for (Check check : Check.values()) {
+			checkMap.put(check, new CheckMetrics());
+		}
+		checks = Collections.unmodifiableMap(checkMap);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void documentIndexed(int size, long nanos) {
+		documentSizes.record(size);
+		indexTimes.record(nanos);
+	}
+
+	@Override
+	public void pathsSearched(String attribute, int paths, long nanos) {
+		pathSearchTimes.record(nanos);
+	}
+
+	@Override
+	public void checkEvaluated(Check check, String attribute, boolean pass,
+			long nanos) {
+		checks.get(check).record(pass, nanos);
+	}
+
+	@Override
+	public void ruleEvaluated(JsonObject rule, String attribute,
+			boolean pass, long nanos) {
+		String text = rule.toString();
+		RuleMetrics metrics = rules.get(text);
+		if (metrics == null) {
+			RuleMetrics newMetrics = new RuleMetrics(text, attribute);
+			metrics = rules.putIfAbsent(text, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+			}
+		}
+		metrics.record(pass, nanos);
+	}
+
+	@Override
+	public void ruleInvalid(JsonObject rule) {
+		invalidRules.incrementAndGet();
+	}
+
+	/**
+	 * 
+	 * @return the number of attributes of the documents indexed
+	 */
+	public Histogram documentSizes() {
+		return documentSizes;
+	}
+
+	/**
+	 * 
+	 * @return the nanoseconds taken to index the documents
+	 */
+	public Histogram indexTimes() {
+		return indexTimes;
+	}
+
+	/**
+	 * 
+	 * @return the nanoseconds taken to look up the paths to attributes
+	 */
+	public Histogram pathSearchTimes() {
+		return pathSearchTimes;
+	}
+
+	/**
+	 * 
+	 * @param check
+	 *            - the check type
+	 * @return the metrics of every check of the type
+	 */
+	public CheckMetrics check(Check check) {
+		return checks.get(check);
+	}
+
+	/**
+	 * 
+	 * @param rule
+	 *            - the validation json of the rule, the one held by its plan
+	 *            or any other equal to it
+	 * @return the metrics of the rule, null if it wasn't evaluated
+	 */
+	public RuleMetrics rule(JsonObject rule) {
+		return rule(rule.toString());
+	}
+
+	/**
+	 * 
+	 * @param rule
+	 *            - the text of the validation json of the rule, as given by
+	 *            its toString
+	 * @return the metrics of the rule, null if it wasn't evaluated
+	 */
+	public RuleMetrics rule(String rule) {
+		return rules.get(rule);
+	}
+
+	/**
+	 * 
+	 * @param attribute
+	 *            - the attribute of the rules
+	 * @return the metrics of every rule evaluated about the attribute, the
+	 *         ones that took the most time overall first
+	 */
+	public List<RuleMetrics> rules(String attribute) {
+		List<RuleMetrics> found = new ArrayList<RuleMetrics>();
+		for (RuleMetrics rule : rulesByTotalTime()) {
+			if (rule.attribute().equals(attribute)) {
+				found.add(rule);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * 
+	 * @return the metrics of every rule evaluated, the ones that took the most
+	 *         time overall first
+	 */
+	public List<RuleMetrics> rulesByTotalTime() {
+		List<RuleMetrics> sorted = new ArrayList<RuleMetrics>(rules.values());
+		Collections.sort(sorted, new Comparator<RuleMetrics>() {
+			public int compare(RuleMetrics r1, RuleMetrics r2) {
+				long t1 = r1.times().total();
+				long t2 = r2.times().total();
+				return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * 
+	 * @return the number of rules that couldn't be evaluated
+	 */
+	public long invalidRules() {
+		return invalidRules.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append("document sizes: ").append(documentSizes).append('\n');
+		report.append("index ns: ").append(indexTimes).append('\n');
+		report.append("path search ns: ").append(pathSearchTimes).append('\n');
+		for (Check check : Check.values()) {
+			report.append(check.name().toLowerCase()).append(" ns: ")
+					.append(checks.get(check)).append('\n');
+		}
+		for (RuleMetrics rule : rulesByTotalTime()) {
+			report.append("rule ").append(rule.rule()).append(" ns: ")
+					.append(rule).append('\n');
+		}
+		report.append("invalid rules: ").append(invalidRules());
+		return report.toString();
+	}
+
+	/**
+	 * The times and verdicts of a check type
+	 */
+	public static class CheckMetrics {
+		private final Histogram times = new Histogram();
+		private final AtomicLong passes = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+
+		void record(boolean pass, long nanos) {
+			times.record(nanos);
+			(pass ? passes : failures).incrementAndGet();
+		}
+
+		/**
+		 * 
+		 * @return the nanoseconds taken
+		 */
+		public Histogram times() {
+			return times;
+		}
+
+		/**
+		 * 
+		 * @return the number of times it passed
+		 */
+		public long passes() {
+			return passes.get();
+		}
+
+		/**
+		 * 
+		 * @return the number of times it failed
+		 */
+		public long failures() {
+			return failures.get();
+		}
+
+		@Override
+		public String toString() {
+			return times + " passes=" + passes() + " failures=" + failures();
+		}
+	}
+
+	/**
+	 * The times and verdicts of a rule
+	 */
+	public static class RuleMetrics extends CheckMetrics {
+		private final String rule;
+		private final String attribute;
+
+		RuleMetrics(String rule, String attribute) {
+			this.rule = rule;
+			this.attribute = attribute;
+		}
+
+		/**
+		 * 
+		 * @return the text of the validation json of the rule
+		 */
+		public String rule() {
+			return rule;
+		}
+
+		/**
+		 * 
+		 * @return the attribute of the rule
+		 */
+		public String attribute() {
+			return attribute;
+		}
+	}
+
+}
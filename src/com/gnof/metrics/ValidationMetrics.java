@@ -0,0 +1,126 @@
+package com.gnof.metrics;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Listener for what validations cost. A JsonValidator or ValidationWorker
+ * given an implementation reports to it how long indexing, path searches,
+ * every check and every rule took, whether the checks and rules passed, and
+ * the size of the documents validated.
+ * 
+ * Timings are only taken when isEnabled is true, so NONE, the default, costs
+ * nothing beyond the check of the flag. Checks of composite validations are
+ * part of the composite check and aren't reported separately.
+ * 
+ * Implementations are called from every thread validating with the
+ * validator or worker they were given to and must be thread safe.
+ * 
+ * @author kofong
+ * 
+ */
+public interface ValidationMetrics {
+
+	/**
+	 * Metrics that record nothing
+	 */
+	ValidationMetrics NONE = new ValidationMetrics() {
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void documentIndexed(int size, long nanos) {
+		}
+
+		@Override
+		public void pathsSearched(String attribute, int paths, long nanos) {
+		}
+
+		@Override
+		public void checkEvaluated(Check check, String attribute,
+				boolean pass, long nanos) {
+		}
+
+		@Override
+		public void ruleEvaluated(JsonObject rule, String attribute,
+				boolean pass, long nanos) {
+		}
+
+		@Override
+		public void ruleInvalid(JsonObject rule) {
+		}
+	};
+
+	/**
+	 * 
+	 * @return whether the validations are timed and reported, read once per
+	 *         validation
+	 */
+	boolean isEnabled();
+
+	/**
+	 * A document was indexed
+	 * 
+	 * @param size
+	 *            - the number of attributes in the document
+	 * @param nanos
+	 *            - the time taken to index it
+	 */
+	void documentIndexed(int size, long nanos);
+
+	/**
+	 * The paths to an attribute were looked up for the ancestor and
+	 * hierarchy checks
+	 * 
+	 * @param attribute
+	 *            - the attribute of the rule
+	 * @param paths
+	 *            - the number of paths found
+	 * @param nanos
+	 *            - the time taken
+	 */
+	void pathsSearched(String attribute, int paths, long nanos);
+
+	/**
+	 * A check of a rule was made
+	 * 
+	 * @param check
+	 *            - the check
+	 * @param attribute
+	 *            - the attribute of the rule
+	 * @param pass
+	 *            - whether the check passed
+	 * @param nanos
+	 *            - the time taken
+	 */
+	void checkEvaluated(Check check, String attribute, boolean pass,
+			long nanos);
+
+	/**
+	 * A rule was evaluated. A rule that is only checked for its verdict stops
+	 * at the first check that fails
+	 * 
+	 * @param rule
+	 *            - the validation json of the rule, as held by its plan, so
+	 *            it must not be changed. Rules on the same attribute can be
+	 *            told apart by its text
+	 * @param attribute
+	 *            - the attribute of the rule
+	 * @param pass
+	 *            - whether the rule passed
+	 * @param nanos
+	 *            - the time taken, including its checks and path searches
+	 */
+	void ruleEvaluated(JsonObject rule, String attribute, boolean pass,
+			long nanos);
+
+	/**
+	 * A rule couldn't be evaluated because it is malformed
+	 * 
+	 * @param rule
+	 *            - the validation json of the rule, as held by its plan, so
+	 *            it must not be changed
+	 */
+	void ruleInvalid(JsonObject rule);
+}
@@ -0,0 +1,222 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.PlanCache;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.metrics.Check;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+
+public class AsyncValidationTest {
+
+	DocumentGenerator generator;
+	JsonObject document;
+	ValidationPlan plan;
+
+	@Before
+	public void setUp() throws Exception {
+		generator = new DocumentGenerator(2, 3, 12, 1);
+		document = generator.document();
+		plan = ValidationPlan.compile(generator.rules(10).toString());
+	}
+
+	@Test
+	public void testResultsMatchSynchronous() throws Exception {
+		JsonValidator validator = new JsonValidator();
+		ValidationResult expected = validator.evaluate(plan, document);
+
+		ValidationResult fromObject = validator.validateAsync(plan, document)
+				.get(10, TimeUnit.SECONDS);
+		ValidationResult fromString = validator.validateAsync(plan,
+				document.toString()).get(10, TimeUnit.SECONDS);
+		assertEquals(expected.toDetailMap(), fromObject.toDetailMap());
+		assertEquals(expected.toDetailMap(), fromString.toDetailMap());
+
+		Path file = File.createTempFile("async", ".json").toPath();
+		try {
+			Files.write(file,
+					document.toString().getBytes(StandardCharsets.UTF_8));
+			ValidationResult fromFile = validator.validateAsync(plan, file)
+					.get(10, TimeUnit.SECONDS);
+			assertEquals(expected.isPass(), fromFile.isPass());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testRunsOnExecutor() throws Exception {
+		final AtomicInteger executed = new AtomicInteger();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executed.incrementAndGet();
+				ForkJoinPool.commonPool().execute(command);
+			}
+		};
+		ValidationResult result = new JsonValidator().validateAsync(plan,
+				document, executor).get(10, TimeUnit.SECONDS);
+		assertEquals(1, executed.get());
+		assertEquals(new JsonValidator().evaluate(plan, document).isPass(),
+				result.isPass());
+	}
+
+	@Test
+	public void testFallbackPoolIsBounded() throws Exception {
+		final Set<String> threads = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		RuleCounter counter = new RuleCounter(Integer.MAX_VALUE) {
+			@Override
+			public void documentIndexed(int size, long nanos) {
+				threads.add(Thread.currentThread().getName());
+			}
+		};
+		List<CompletableFuture<ValidationResult>> futures = new ArrayList<CompletableFuture<ValidationResult>>();
+		for (int i = 0; i < 64; i++) {
+			futures.add(counter.validator.validateAsync(plan, document));
+		}
+		for (CompletableFuture<ValidationResult> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		int pooled = 0;
+		for (String thread : threads) {
+			if (thread.startsWith("json-validator-async-")) {
+				pooled++;
+			}
+		}
+		// virtual threads when the runtime has them, otherwise no more
+		// threads than processors
+		assertTrue(pooled <= Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void testMalformedJsonCompletesExceptionally() throws Exception {
+		try {
+			new JsonValidator().validateAsync(plan, "{\"foo\" 1}").get(10,
+					TimeUnit.SECONDS);
+			fail("malformed JSON completes exceptionally");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof JsonSyntaxException);
+		}
+	}
+
+	@Test
+	public void testCancelBeforeStartDoesNothing() {
+		RuleCounter counter = new RuleCounter(-1);
+		Deferred deferred = new Deferred();
+		CompletableFuture<ValidationResult> future = counter.validator
+				.validateAsync(plan, document, deferred);
+		assertTrue(future.cancel(true));
+		deferred.runAll();
+		assertTrue(future.isCancelled());
+		assertEquals(0, counter.indexed.get());
+		assertEquals(0, counter.rules.get());
+	}
+
+	@Test
+	public void testCancelStopsBetweenRules() {
+		// the future is cancelled while the third rule is evaluated
+		RuleCounter counter = new RuleCounter(3);
+		Deferred deferred = new Deferred();
+		counter.future = counter.validator.validateAsync(plan, document,
+				deferred);
+		deferred.runAll();
+		assertTrue(counter.future.isCancelled());
+		assertEquals(3, counter.rules.get());
+	}
+
+	@Test
+	public void testCancelStopsParallelRules() {
+		RuleCounter counter = new RuleCounter(1);
+		counter.validator = new JsonValidator(counter, new PlanCache(0), null,
+				new ForkJoinPool(1));
+		Deferred deferred = new Deferred();
+		counter.future = counter.validator.validateAsync(plan, document,
+				deferred);
+		deferred.runAll();
+		assertTrue(counter.future.isCancelled());
+		assertEquals(1, counter.rules.get());
+	}
+
+	/**
+	 * Executor holding the validations until they're run on the test thread
+	 */
+	private static class Deferred implements Executor {
+		List<Runnable> commands = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			commands.add(command);
+		}
+
+		void runAll() {
+			for (Runnable command : commands) {
+				command.run();
+			}
+		}
+	}
+
+	/**
+	 * Metrics counting what the validator does, cancelling the future after a
+	 * number of rules
+	 */
+	private static class RuleCounter implements ValidationMetrics {
+		JsonValidator validator = new JsonValidator(this, new PlanCache(0));
+		CompletableFuture<ValidationResult> future;
+		AtomicInteger indexed = new AtomicInteger();
+		AtomicInteger rules = new AtomicInteger();
+		int cancelOnRule;
+
+		RuleCounter(int cancelOnRule) {
+			this.cancelOnRule = cancelOnRule;
+		}
+
+		public boolean isEnabled() {
+			return true;
+		}
+
+		public void documentIndexed(int size, long nanos) {
+			indexed.incrementAndGet();
+		}
+
+		public void pathsSearched(String attribute, int paths, long nanos) {
+		}
+
+		public void checkEvaluated(Check check, String attribute,
+				boolean pass, long nanos) {
+		}
+
+		public void ruleEvaluated(JsonObject rule, String attribute,
+				boolean pass, long nanos) {
+			if (rules.incrementAndGet() == cancelOnRule) {
+				future.cancel(true);
+			}
+		}
+
+		public void ruleInvalid(JsonObject rule) {
+		}
+	}
+}
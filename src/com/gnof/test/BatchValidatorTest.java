@@ -0,0 +1,207 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.BatchValidator;
+import com.gnof.core.JsonValidator;
+import com.gnof.core.RecordListener;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+
+public class BatchValidatorTest {
+
+	String validation = "[{\"attribute\":\"foo\", \"value\":\"[bär,bat]\"},{\"attribute\":\"comp1\", \"ancestor\":\"[properties]\"}]";
+	String compositeValidation = "{\"attribute\":\"foo\", \"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}}";
+	String[] values = { "bär", "bat", "blam € 😀", "no" };
+
+	Path file;
+	List<Long> offsets;
+	List<String> records;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("batch", ".ndjson").toPath();
+		offsets = new ArrayList<Long>();
+		records = new ArrayList<String>();
+		Random random = new Random(42);
+		StringBuilder ndjson = new StringBuilder();
+		long offset = 0;
+		for (int i = 0; i < 300; i++) {
+			String record = "{\"properties\":[{\"foo\":\""
+					+ values[random.nextInt(values.length)]
+					+ "\",\"comp1\":\"yes\"},{\"comp2\":\""
+					+ values[random.nextInt(values.length)]
+					+ "\",\"foo\":\"bat\"}],\"n\":" + i + "}";
+			// some lines end in \r\n, some records are followed by a blank line
+			String line = record + (i % 5 == 0 ? "\r\n" : "\n")
+					+ (i % 7 == 0 ? "  \n" : "");
+			offsets.add(offset);
+			records.add(record);
+			ndjson.append(line);
+			offset += line.getBytes(StandardCharsets.UTF_8).length;
+		}
+		Files.write(file, ndjson.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testOrderedMatchesSequential() throws Exception {
+		for (String rules : new String[] { validation, compositeValidation }) {
+			ValidationPlan plan = ValidationPlan.compile(rules);
+			List<String> expected = sequential(plan);
+			for (int threads : new int[] { 1, 4 }) {
+				for (int chunkSize : new int[] { 1, 100, 4096,
+						BatchValidator.DEFAULT_CHUNK_SIZE }) {
+					try (BatchValidator batch = new BatchValidator(
+							new JsonValidator(), threads, chunkSize)) {
+						Collector collector = new Collector();
+						assertEquals(records.size(),
+								batch.validate(plan, file, collector));
+						assertEquals(threads + " threads, chunks of "
+								+ chunkSize, expected, collector.results);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnorderedCoversEveryRecord() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile(validation);
+		List<String> expected = sequential(plan);
+		try (BatchValidator batch = new BatchValidator(new JsonValidator(),
+				4, 64)) {
+			Collector collector = new Collector();
+			assertEquals(records.size(),
+					batch.validateUnordered(plan, file, collector));
+			// offsets sort in the order of the file
+			Collections.sort(collector.results);
+			Collections.sort(expected);
+			assertEquals(expected, collector.results);
+		}
+	}
+
+	@Test
+	public void testMalformedRecordsFail() throws Exception {
+		Files.write(file, ("{\"foo\":\"bat\"}\nnot json\n[1,2]\n{\"foo\":\"blam\"}")
+				.getBytes(StandardCharsets.UTF_8));
+		ValidationPlan plan = ValidationPlan
+				.compile("{\"attribute\":\"foo\", \"value\":\"bat\"}");
+		try (BatchValidator batch = new BatchValidator(2)) {
+			Collector collector = new Collector();
+			assertEquals(4, batch.validate(plan, file, collector));
+			assertTrue(collector.results.get(0).startsWith("00000000 true"));
+			assertEquals("00000014 failed", collector.results.get(1));
+			assertEquals("00000023 failed", collector.results.get(2));
+			assertTrue(collector.results.get(3).startsWith("00000029 false"));
+		}
+	}
+
+	@Test
+	public void testRecordsLongerThanReadBuffer() throws Exception {
+		// surrogate pairs and three byte characters across the characters
+		// decoded at a time
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < 700; i++) {
+			padding.append(i % 3 == 0 ? "€" : "😀");
+		}
+		records.clear();
+		offsets.clear();
+		StringBuilder ndjson = new StringBuilder();
+		for (String value : values) {
+			String record = "{\"padding\":\"" + padding
+					+ "\",\"properties\":[{\"foo\":\"" + value
+					+ "\",\"comp1\":\"yes\"}]}";
+			offsets.add((long) ndjson.toString().getBytes(
+					StandardCharsets.UTF_8).length);
+			records.add(record);
+			ndjson.append(record).append("\r\n");
+		}
+		Files.write(file, ndjson.toString().getBytes(StandardCharsets.UTF_8));
+		ValidationPlan plan = ValidationPlan.compile(validation);
+		try (BatchValidator batch = new BatchValidator(2)) {
+			Collector collector = new Collector();
+			assertEquals(values.length, batch.validate(plan, file, collector));
+			assertEquals(sequential(plan), collector.results);
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Files.write(file, new byte[0]);
+		try (BatchValidator batch = new BatchValidator(2)) {
+			Collector collector = new Collector();
+			assertEquals(0, batch.validate(ValidationPlan.compile(validation),
+					file, collector));
+			assertTrue(collector.results.isEmpty());
+		}
+	}
+
+	@Test
+	public void testListenerExceptionStopsBatch() throws Exception {
+		try (BatchValidator batch = new BatchValidator(new JsonValidator(), 2,
+				16)) {
+			batch.validate(ValidationPlan.compile(validation), file,
+					new Collector() {
+						@Override
+						public void validated(long offset,
+								ValidationResult result) {
+							throw new IllegalStateException("stop");
+						}
+					});
+			fail("the listener exception is thrown");
+		} catch (IllegalStateException e) {
+			assertEquals("stop", e.getMessage());
+		}
+	}
+
+	/**
+	 * The results of checking every record one at a time, in the format of
+	 * the Collector
+	 */
+	private List<String> sequential(ValidationPlan plan) {
+		JsonValidator validator = new JsonValidator();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < records.size(); i++) {
+			expected.add(format(offsets.get(i),
+					validator.evaluate(plan, records.get(i))));
+		}
+		return expected;
+	}
+
+	private static String format(long offset, ValidationResult result) {
+		return String.format("%08d", offset) + " " + result.isPass() + " "
+				+ result.toDetailMap();
+	}
+
+	private static class Collector implements RecordListener {
+		List<String> results = new ArrayList<String>();
+
+		@Override
+		public void validated(long offset, ValidationResult result) {
+			results.add(format(offset, result));
+		}
+
+		@Override
+		public void failed(long offset, RuntimeException e) {
+			results.add(String.format("%08d", offset) + " failed");
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.gnof.test;
+
+import java.util.Random;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Generates JSON documents, and validation rules against them, of a given
+ * shape. The same parameters always generate the same document.
+ *
+ * Every object above the bottom level has 'fanOut' attributes named
+ * "key<i>_<group>": the first holds a list of 'arrayLength' objects of the
+ * next level and the others hold a single object of the next level. The
+ * objects of the bottom level have 'fanOut' primitive attributes named
+ * "leaf<i>" whose values are "v0", "v1" or "v2".
+ *
+ * 'keyRepetition' is the number of consecutive levels that share the same key
+ * names (the group of a level is level / keyRepetition), so the higher it is
+ * the more often a key is its own ancestor.
+ *
+ * @author kofong
+ *
+ */
+public class DocumentGenerator {
+
+	public static final String QUANTITY = "quantity";
+	public static final String VALUE = "value";
+	public static final String COMPOSITE = "composite";
+	public static final String ANCESTOR = "ancestor";
+	public static final String HIERARCHY = "hierarchy";
+
+	private static final String[] CHECKS = { QUANTITY, VALUE, COMPOSITE,
+			ANCESTOR, HIERARCHY };
+	private static final long SEED = 42;
+
+	private final int depth;
+	private final int fanOut;
+	private final int arrayLength;
+	private final int keyRepetition;
+
+	/**
+	 * @param depth
+	 *            - the number of levels below the root
+	 * @param fanOut
+	 *            - the number of attributes of every object
+	 * @param arrayLength
+	 *            - the number of objects in every list
+	 * @param keyRepetition
+	 *            - the number of consecutive levels sharing their key names
+	 */
+	public DocumentGenerator(int depth, int fanOut, int arrayLength,
+			int keyRepetition) {
+		if (depth < 0 || fanOut < 1 || arrayLength < 1 || keyRepetition < 1) {
+			throw new IllegalArgumentException("invalid document shape");
+		}
+		this.depth = depth;
+		this.fanOut = fanOut;
+		this.arrayLength = arrayLength;
+		this.keyRepetition = keyRepetition;
+	}
+
+	/**
+	 * Generates the document
+	 *
+	 * @return the document
+	 */
+	public JsonObject document() {
+		return object(0, new Random(SEED));
+	}
+
+	/**
+	 * The number of bottom level objects in the document, which the size of
+	 * the document grows with
+	 *
+	 * @return the number of bottom level objects
+	 */
+	public long leafObjects() {
+		long count = 1;
+		for (int level = 0; level < depth; level++) {
+			count *= arrayLength + fanOut - 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Generates rules cycling through the check types
+	 *
+	 * @param ruleCount
+	 *            - the number of rules
+	 * @return the validation json of the rules
+	 */
+	public JsonArray rules(int ruleCount) {
+		JsonArray rules = new JsonArray();
+		for (int i = 0; i < ruleCount; i++) {
+			rules.add(rule(CHECKS[i % CHECKS.length], i));
+		}
+		return rules;
+	}
+
+	/**
+	 * Generates a rule of a single check type
+	 *
+	 * @param check
+	 *            - one of QUANTITY, VALUE, COMPOSITE, ANCESTOR or HIERARCHY
+	 * @param index
+	 *            - picks which leaf attribute the rule is about
+	 * @return the validation json of the rule
+	 */
+	public JsonObject rule(String check, int index) {
+		JsonObject rule = new JsonObject();
+		rule.addProperty("attribute", leafName(index % fanOut));
+		if (QUANTITY.equals(check)) {
+			rule.addProperty("quantity", leafObjects());
+		} else if (VALUE.equals(check)) {
+			rule.addProperty("value", "v" + index % 3);
+		} else if (COMPOSITE.equals(check)) {
+			JsonObject composite = new JsonObject();
+			composite.addProperty("attribute", leafName((index + 1) % fanOut));
+			composite.addProperty("value", "v" + index % 3);
+			rule.add("composite", composite);
+		} else if (ANCESTOR.equals(check)) {
+			rule.addProperty("ancestor", "[" + keyName(0, 0) + "]");
+		} else if (HIERARCHY.equals(check)) {
+			StringBuilder path = new StringBuilder("[[");
+			for (int level = 0; level < depth; level++) {
+				if (level > 0) {
+					path.append(",");
+				}
+				path.append(keyName(level, 0));
+			}
+			rule.addProperty("hierarchy", path.append("]]").toString());
+		} else {
+			throw new IllegalArgumentException("unknown check: " + check);
+		}
+		return rule;
+	}
+
+	private JsonObject object(int level, Random random) {
+		JsonObject object = new JsonObject();
+		for (int i = 0; i < fanOut; i++) {
+			if (level == depth) {
+				object.addProperty(leafName(i), "v" + random.nextInt(3));
+			} else if (i == 0) {
+				JsonArray list = new JsonArray();
+				for (int j = 0; j < arrayLength; j++) {
+					list.add(object(level + 1, random));
+				}
+				object.add(keyName(level, i), list);
+			} else {
+				JsonElement child = object(level + 1, random);
+				object.add(keyName(level, i), child);
+			}
+		}
+		return object;
+	}
+
+	private String keyName(int level, int i) {
+		return "key" + i + "_" + level / keyRepetition;
+	}
+
+	private static String leafName(int i) {
+		return "leaf" + i;
+	}
+}
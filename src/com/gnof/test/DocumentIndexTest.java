@@ -0,0 +1,222 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.DocumentIndex;
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+public class DocumentIndexTest {
+
+	JsonObject toValidate;
+	DocumentIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		String json = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\"},{\"wah\":{\"foo\":\"blam\"}}], \"features\":[\"f1\",\"f2\"]}";
+		toValidate = (JsonObject) new JsonParser().parse(json);
+		index = DocumentIndex.build(toValidate);
+	}
+
+	@Test
+	public void testKeys() {
+		assertTrue(index.hasKey("foo"));
+		assertTrue(index.hasKey("wah"));
+		assertFalse(index.hasKey("blam"));
+		assertEquals(6, index.keys().size());
+	}
+
+	@Test
+	public void testCounts() {
+		assertEquals(3, index.count("foo"));
+		assertEquals(1, index.count("properties"));
+		assertEquals(0, index.count("missing"));
+	}
+
+	@Test
+	public void testValues() {
+		JsonArray values = index.values("foo");
+		assertEquals(3, values.size());
+		assertEquals("bar", values.get(0).getAsString());
+		assertEquals("blam", values.get(2).getAsString());
+
+		// arrays of primitives are listed as the array and each primitive
+		JsonArray features = index.values("features");
+		assertEquals(3, features.size());
+		assertTrue(features.get(0).isJsonArray());
+		assertEquals("f2", features.get(2).getAsString());
+	}
+
+	@Test
+	public void testPaths() {
+		ArrayList<ArrayList<String>> paths = index.paths("foo", null);
+		assertEquals(3, paths.size());
+		assertEquals(Arrays.asList("properties"), paths.get(0));
+		assertEquals(Arrays.asList("properties", "wah"), paths.get(2));
+
+		ArrayList<ArrayList<String>> blamPaths = index.paths("foo", "blam");
+		assertEquals(1, blamPaths.size());
+		assertEquals(Arrays.asList("properties", "wah"), blamPaths.get(0));
+
+		ArrayList<Object> values = new ArrayList<Object>(Arrays.asList("blam",
+				"bar", "missing"));
+		ArrayList<ArrayList<String>> listPaths = index.paths("foo", values);
+		assertEquals(2, listPaths.size());
+		assertEquals(Arrays.asList("properties"), listPaths.get(0));
+		assertEquals(Arrays.asList("properties", "wah"), listPaths.get(1));
+
+		assertTrue(index.paths("missing", null).isEmpty());
+	}
+
+	@Test
+	public void testIndexReuseAcrossPlans() throws Exception {
+		ValidationPlan first = ValidationPlan.compile("{\"attribute\":\"foo\", \"quantity\":3}");
+		ValidationPlan second = ValidationPlan.compile("{\"attribute\":\"comp2\", \"value\":\"no\"}");
+		JsonValidator validator = new JsonValidator();
+		assertTrue(validator.validate(first, toValidate, index));
+		assertTrue(validator.validate(second, toValidate, index));
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertEquals(8, index.size());
+		// keys the plan doesn't look for are counted too
+		ValidationPlan plan = ValidationPlan.compile("{\"attribute\":\"foo\"}");
+		JsonReader reader = new JsonReader(new StringReader(toValidate.toString()));
+		assertEquals(8, DocumentIndex.build(reader, plan).size());
+	}
+
+	@Test
+	public void testStreamedIndex() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile("[{\"attribute\":\"foo\", \"value\":\"blam\", \"ancestor\":\"[wah]\"},{\"attribute\":\"wah\"}]");
+		JsonReader reader = new JsonReader(new StringReader(toValidate.toString()));
+		DocumentIndex streamed = DocumentIndex.build(reader, plan);
+
+		// only the keys of the plan are indexed
+		assertEquals(2, streamed.keys().size());
+		assertEquals(3, streamed.count("foo"));
+		assertEquals(1, streamed.count("wah"));
+		assertFalse(streamed.hasKey("properties"));
+
+		// values are only kept for the keys the plan expects values for
+		assertEquals(index.values("foo"), streamed.values("foo"));
+		assertEquals(0, streamed.values("wah").size());
+		// and paths for the keys the plan checks the paths of
+		assertEquals(index.paths("foo", "blam"), streamed.paths("foo", "blam"));
+		assertEquals(index.paths("foo", null), streamed.paths("foo", null));
+		assertEquals(0, streamed.paths("wah", null).size());
+	}
+
+	@Test
+	public void testStreamedNonObject() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile("{\"attribute\":\"foo\"}");
+		for (String json : new String[] { "[1]", "3" }) {
+			JsonReader reader = new JsonReader(new StringReader(json));
+			reader.setLenient(true);
+			try {
+				DocumentIndex.build(reader, plan);
+				fail(json);
+			} catch (JsonSyntaxException e) {
+				// expected
+			}
+			try {
+				new JsonValidator().validate(plan, new StringReader(json));
+				fail(json);
+			} catch (JsonSyntaxException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testPlanIndex() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile("[{\"attribute\":\"foo\", \"value\":\"blam\", \"ancestor\":\"[wah]\"},{\"attribute\":\"wah\"},{\"attribute\":\"features\", \"quantity\":1}]");
+		DocumentIndex planned = DocumentIndex.build(toValidate, plan);
+
+		// only the keys of the plan are indexed, every key is counted
+		assertEquals(3, planned.keys().size());
+		assertFalse(planned.hasKey("properties"));
+		assertEquals(3, planned.count("foo"));
+		assertEquals(8, planned.size());
+
+		// values are only kept for the keys the plan expects values for,
+		// the primitives of an array too
+		assertEquals(index.values("foo"), planned.values("foo"));
+		assertEquals(0, planned.values("wah").size());
+		assertEquals(0, planned.values("features").size());
+		// and paths for the keys the plan checks the paths of
+		assertEquals(index.paths("foo", "blam"), planned.paths("foo", "blam"));
+		assertEquals(0, planned.paths("wah", null).size());
+
+		// the same index as the one built while the JSON is read
+		JsonReader reader = new JsonReader(new StringReader(toValidate.toString()));
+		DocumentIndex streamed = DocumentIndex.build(reader, plan);
+		assertEquals(streamed.keys(), planned.keys());
+		for (String key : streamed.keys()) {
+			assertEquals(streamed.count(key), planned.count(key));
+			assertEquals(streamed.values(key), planned.values(key));
+			assertEquals(streamed.paths(key, null), planned.paths(key, null));
+		}
+	}
+
+	@Test
+	public void testPlanIndexGivesSameResults() throws Exception {
+		String[] validations = {
+				"{\"attribute\":\"foo\", \"quantity\":3, \"value\":\"[bar,bat]\"}",
+				"{\"attribute\":\"features\", \"value\":\"f2\"}",
+				"{\"attribute\":\"foo\", \"hierarchy\":\"[[properties],[properties,wah]]\"}",
+				"{\"attribute\":\"comp1\", \"ancestor\":\"[properties]\"}",
+				"{\"attribute\":\"foo\",\"value\":\"bat\", \"composite\":[{\"attribute\":\"comp1\", \"value\":\"yes\"},{\"attribute\":\"comp2\", \"value\":\"no\"}]}",
+				"{\"attribute\":\"foo\", \"composite\":{\"attribute\":\"foo\", \"value\":\"bat\",\"ancestor\":\"[[properties,wah]]\"}}",
+				"{\"attribute\":\"properties\", \"composite\":{\"attribute\":\"wah\", \"composite\":{\"attribute\":\"foo\", \"value\":\"blam\"}}}" };
+		// composites don't search arrays of primitives for contexts
+		JsonObject json = (JsonObject) new JsonParser().parse(toValidate
+				.toString().replace("[\"f1\",\"f2\"]", "\"f2\""));
+		DocumentIndex full = DocumentIndex.build(json);
+		JsonValidator validator = new JsonValidator();
+		for (String validation : validations) {
+			ValidationPlan plan = ValidationPlan.compile(validation);
+			DocumentIndex planned = DocumentIndex.build(json, plan);
+			assertTrue(planned.keys().size() < full.keys().size());
+			assertEquals(validation, validator.evaluate(plan, json, full)
+					.toDetailMap(), validator.evaluate(plan, json, planned)
+					.toDetailMap());
+			assertEquals(validation, validator.check(plan, json, full)
+					.isPass(), validator.check(plan, json).isPass());
+		}
+	}
+
+	@Test
+	public void testManyKeys() {
+		JsonObject json = new JsonObject();
+		JsonObject nested = json;
+		for (int i = 0; i < 100; i++) {
+			nested.addProperty("key" + i, i);
+			nested.addProperty("repeated", i);
+			JsonObject child = new JsonObject();
+			nested.add("child", child);
+			nested = child;
+		}
+		DocumentIndex many = DocumentIndex.build(json);
+		assertEquals(102, many.keys().size());
+		assertEquals(1, many.count("key99"));
+		assertEquals(100, many.count("repeated"));
+		assertEquals(100, many.values("repeated").size());
+		// only the outermost child isn't nested in another child
+		assertEquals(1, many.paths("child", null).size());
+		assertEquals(100, many.paths("repeated", null).size());
+		assertEquals(5, many.paths("key5", null).get(0).size());
+	}
+}
@@ -0,0 +1,158 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+
+public class FlightRecorderTest {
+
+	private static final String[] EVENTS = { "com.gnof.Parse",
+			"com.gnof.Index", "com.gnof.PathSearch",
+			"com.gnof.CompositeSearch", "com.gnof.Rule" };
+
+	String target = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\",\"comp1\":\"yes\"},{\"wah\":{\"foo\":\"blam\"}}]}";
+
+	@Test
+	public void testEventsRecorded() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile("[{\"attribute\":\"foo\", \"ancestor\":\"[wah]\"},"
+				+ "{\"attribute\":\"foo\", \"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}}]");
+
+		List<RecordedEvent> events = record(plan, true);
+
+		RecordedEvent parse = only(events, "com.gnof.Parse");
+		assertEquals(target.length(), parse.getLong("length"));
+
+		RecordedEvent search = only(events, "com.gnof.PathSearch");
+		assertEquals("foo", search.getString("attribute"));
+		assertEquals(3, search.getInt("paths"));
+		assertEquals(8, search.getInt("documentSize"));
+
+		RecordedEvent composite = only(events, "com.gnof.CompositeSearch");
+		assertEquals("foo", composite.getString("attribute"));
+		assertEquals("comp2", composite.getString("compositeAttribute"));
+		assertEquals(1, composite.getInt("contexts"));
+		assertTrue(composite.getBoolean("passed"));
+
+		List<RecordedEvent> rules = all(events, "com.gnof.Rule");
+		assertEquals(2, rules.size());
+		assertTrue(rules.get(0).getBoolean("passed"));
+		assertTrue(rules.get(0).getBoolean("details"));
+		assertEquals(8, rules.get(0).getInt("documentSize"));
+
+		// the document and the context the composite validated
+		List<RecordedEvent> indexes = all(events, "com.gnof.Index");
+		assertEquals(2, indexes.size());
+		assertEquals(8, indexes.get(0).getInt("documentSize"));
+		assertFalse(indexes.get(0).getBoolean("streamed"));
+	}
+
+	@Test
+	public void testStreamedIndexRecorded() throws Exception {
+		ValidationPlan plan = ValidationPlan
+				.compile("{\"attribute\":\"foo\", \"quantity\":3}");
+
+		List<RecordedEvent> events = record(plan, false);
+
+		assertTrue(all(events, "com.gnof.Parse").isEmpty());
+		RecordedEvent index = only(events, "com.gnof.Index");
+		assertTrue(index.getBoolean("streamed"));
+		assertEquals(8, index.getInt("documentSize"));
+		assertEquals(1, index.getInt("keys"));
+		RecordedEvent rule = only(events, "com.gnof.Rule");
+		assertTrue(rule.getBoolean("passed"));
+		assertFalse(rule.getBoolean("details"));
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		File file = File.createTempFile("validator", ".jfr");
+		try {
+			Recording recording = new Recording();
+			recording.start();
+			new JsonValidator().evaluate(ValidationPlan
+					.compile("{\"attribute\":\"foo\"}"), target);
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file
+					.toPath())) {
+				assertFalse(event.getEventType().getName()
+						.startsWith("com.gnof."));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Records the events of the validator while a plan is evaluated, or
+	 * checked from a stream
+	 */
+	private List<RecordedEvent> record(ValidationPlan plan, boolean evaluate)
+			throws Exception {
+		File file = File.createTempFile("validator", ".jfr");
+		try {
+			Recording recording = new Recording();
+			for (String event : EVENTS) {
+				recording.enable(event).withoutThreshold();
+			}
+			recording.start();
+			if (evaluate) {
+				new JsonValidator().evaluate(plan, target);
+			} else {
+				new JsonValidator().check(plan, new StringReader(target));
+			}
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+
+			List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file
+					.toPath())) {
+				if (event.getEventType().getName().startsWith("com.gnof.")) {
+					events.add(event);
+				}
+			}
+			return events;
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static List<RecordedEvent> all(List<RecordedEvent> events,
+			String name) {
+		List<RecordedEvent> named = new ArrayList<RecordedEvent>();
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(name)) {
+				named.add(event);
+			}
+		}
+		// events of a thread are in the order they ended
+		Collections.sort(named, new Comparator<RecordedEvent>() {
+			public int compare(RecordedEvent e1, RecordedEvent e2) {
+				return e1.getEndTime().compareTo(e2.getEndTime());
+			}
+		});
+		return named;
+	}
+
+	private static RecordedEvent only(List<RecordedEvent> events, String name) {
+		List<RecordedEvent> named = all(events, name);
+		assertEquals(name, 1, named.size());
+		return named.get(0);
+	}
+}
@@ -0,0 +1,169 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationUnit;
+import com.gnof.core.ValidationWorker;
+import com.gnof.metrics.Check;
+import com.gnof.metrics.Histogram;
+import com.gnof.metrics.HistogramMetrics;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class HistogramMetricsTest {
+
+	String target;
+	String validation;
+	ValidationPlan plan;
+
+	@Before
+	public void setUp() throws Exception {
+		target = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\",\"comp1\":\"yes\"},{\"wah\":{\"foo\":\"blam\"}}]}";
+		validation = "[{\"attribute\":\"foo\", \"quantity\":3, \"value\":\"blam\", \"hierarchy\":\"[[properties],[properties],[properties,wah]]\"},"
+				+ "{\"attribute\":\"comp1\", \"ancestor\":\"[wah]\"},"
+				+ "{\"attribute\":\"foo\", \"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}},"
+				+ "{\"quantity\":1}]";
+		plan = ValidationPlan.compile(validation);
+	}
+
+	@Test
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.percentile(50));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.count());
+		assertEquals(500500, histogram.total());
+		assertEquals(1000, histogram.max());
+		assertEquals(500.5, histogram.mean(), 0.001);
+		// accurate to an eighth
+		assertEquals(500, histogram.percentile(50), 500 / 8);
+		assertEquals(990, histogram.percentile(99), 990 / 8);
+		assertEquals(1000, histogram.percentile(100));
+		assertEquals(1, histogram.percentile(0));
+
+		Histogram small = new Histogram();
+		small.record(-5);
+		small.record(3);
+		assertEquals(0, small.percentile(50));
+		assertEquals(3, small.percentile(100));
+	}
+
+	@Test
+	public void testEvaluateRecords() throws Exception {
+		HistogramMetrics metrics = new HistogramMetrics();
+		JsonValidator validator = new JsonValidator(metrics);
+		assertSame(metrics, validator.getMetrics());
+		validator.evaluate(plan, target);
+
+		assertEquals(1, metrics.documentSizes().count());
+		assertEquals(8, metrics.documentSizes().max());
+		assertEquals(1, metrics.indexTimes().count());
+		assertEquals(1, metrics.invalidRules());
+
+		assertEquals(1, metrics.check(Check.QUANTITY).passes());
+		assertEquals(2, metrics.check(Check.VALUE).passes());
+		assertEquals(1, metrics.check(Check.HIERARCHY).failures());
+		assertEquals(1, metrics.check(Check.ANCESTOR).failures());
+		assertEquals(1, metrics.check(Check.COMPOSITE).passes());
+		// the hierarchy and the ancestor search paths
+		assertEquals(2, metrics.pathSearchTimes().count());
+
+		// the two rules on foo are kept apart
+		assertEquals(1, metrics.rule(plan.getRule(0)).failures());
+		assertEquals(0, metrics.rule(plan.getRule(0)).passes());
+		assertEquals(1, metrics.rule(plan.getRule(2)).passes());
+		assertEquals(1, metrics.rule(plan.getRule(2)).times().count());
+		assertEquals(1, metrics.rule(plan.getRule(1)).failures());
+		assertEquals(2, metrics.rules("foo").size());
+		assertTrue(metrics.rules("comp2").isEmpty());
+		assertEquals(3, metrics.rulesByTotalTime().size());
+
+		// the same rule again
+		validator.evaluate(plan, target);
+		assertEquals(2, metrics.rule(plan.getRule(0)).failures());
+		assertEquals(3, metrics.rulesByTotalTime().size());
+
+		// and once its plan is compiled again
+		validator.evaluate(ValidationPlan.compile(validation), target);
+		assertEquals(3, metrics.rule(plan.getRule(0)).failures());
+		assertEquals(3, metrics.rulesByTotalTime().size());
+	}
+
+	@Test
+	public void testCheckRecordsChecksMade() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		JsonValidator validator = new JsonValidator(metrics);
+		validator.checkFailFast(plan, new StringReader(target));
+
+		// the hierarchy of the first rule fails, nothing after it is checked
+		assertEquals(1, metrics.check(Check.HIERARCHY).failures());
+		assertEquals(0, metrics.check(Check.COMPOSITE).times().count());
+		assertEquals(0, metrics.check(Check.ANCESTOR).times().count());
+		assertEquals(1, metrics.rule(plan.getRule(0)).failures());
+		assertNull(metrics.rule(plan.getRule(2)));
+		assertEquals(1, metrics.documentSizes().count());
+	}
+
+	@Test
+	public void testWorkerRecords() throws Exception {
+		HistogramMetrics metrics = new HistogramMetrics();
+		JsonObject toValidate = (JsonObject) new JsonParser().parse(target);
+		JsonObject rule = (JsonObject) new JsonParser()
+				.parse("{\"attribute\":\"foo\", \"quantity\":3}");
+		ValidationWorker worker = new ValidationWorker(metrics);
+		worker.validate(new ValidationUnit(rule), toValidate);
+
+		assertTrue(worker.isOverallPass());
+		assertEquals(1, metrics.indexTimes().count());
+		assertEquals(1, metrics.check(Check.QUANTITY).passes());
+		assertEquals(1, metrics.rule(rule).passes());
+		// found by a rule built by the caller
+		assertEquals(1, metrics.rule((JsonObject) new JsonParser()
+				.parse("{\"attribute\":\"foo\", \"quantity\":3}"))
+				.passes());
+		assertEquals(rule.toString(), metrics.rulesByTotalTime().get(0).rule());
+	}
+
+	@Test
+	public void testDisabledMetricsAreNotCalled() {
+		ValidationMetrics disabled = new ValidationMetrics() {
+			public boolean isEnabled() {
+				return false;
+			}
+
+			public void documentIndexed(int size, long nanos) {
+				fail();
+			}
+
+			public void pathsSearched(String attribute, int paths, long nanos) {
+				fail();
+			}
+
+			public void checkEvaluated(Check check, String attribute,
+					boolean pass, long nanos) {
+				fail();
+			}
+
+			public void ruleEvaluated(JsonObject rule, String attribute,
+					boolean pass, long nanos) {
+				fail();
+			}
+
+			public void ruleInvalid(JsonObject rule) {
+			}
+		};
+		JsonValidator validator = new JsonValidator(disabled);
+		assertFalse(validator.validate(plan, target));
+		assertFalse(validator.check(plan, new StringReader(target)).isPass());
+	}
+}
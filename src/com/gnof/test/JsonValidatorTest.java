@@ -2,12 +2,14 @@ package com.gnof.test;
 
 import static org.junit.Assert.*;
 
+import java.io.StringReader;
 import java.util.HashMap;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -112,4 +114,51 @@ public class JsonValidatorTest {
 		assertFalse(result);
 	}
 
+	@Test
+	public void testStreamingMatchesTree() throws Exception {
+		String[] validations = {
+				basicValidation,
+				valueValidation,
+				"{\"attribute\":\"foo\", \"quantity\":3, \"hierarchy\":\"[[properties],[properties,wah]]\"}",
+				"{\"attribute\":\"foo\", \"value\":\"blam\", \"ancestor\":\"[properties,wah]\"}",
+				"[{\"attribute\":\"comp1\", \"value\":\"yes\", \"quantity\":2},{\"attribute\":\"wah\"},{\"attribute\":\"missing\", \"quantity\":1}]" };
+		String[] targets = { basicValidationTarget, multipleCompositeTarget,
+				hierarchyValidationTarget };
+
+		for (String validation : validations) {
+			ValidationPlan plan = ValidationPlan.compile(validation);
+			for (String target : targets) {
+				JsonValidator tree = new JsonValidator();
+				JsonValidator stream = new JsonValidator();
+				assertEquals(tree.validate(plan, target),
+						stream.validate(plan, new StringReader(target)));
+				assertEquals(tree.getLastValidationDetail(),
+						stream.getLastValidationDetail());
+			}
+		}
+	}
+
+	@Test
+	public void testStreamingWithComposite() throws Exception {
+		ValidationPlan plan = ValidationPlan.compile(multipleCompositeValidationTrue);
+		JsonValidator validator = new JsonValidator();
+		assertTrue(validator.validate(plan, new StringReader(multipleCompositeTarget)));
+	}
+
+	@Test
+	public void testCompositesShareContexts() throws Exception {
+		// both rules search and validate the same contexts
+		String validations = "[" + multipleCompositeValidationTrue + ","
+				+ multipleCompositeValidationFalse + "]";
+		ValidationPlan plan = ValidationPlan.compile(validations);
+		JsonValidator validator = new JsonValidator();
+		assertFalse(validator.validate(plan, multipleCompositeTarget));
+
+		JsonValidator separate = new JsonValidator();
+		assertTrue(separate.validate(multipleCompositeValidationTrue, multipleCompositeTarget));
+		HashMap<JsonObject, JsonObject> separateDetails = separate.getLastValidationDetail();
+		assertFalse(separate.validate(multipleCompositeValidationFalse, multipleCompositeTarget));
+		separateDetails.putAll(separate.getLastValidationDetail());
+		assertEquals(separateDetails, validator.getLastValidationDetail());
+	}
 }
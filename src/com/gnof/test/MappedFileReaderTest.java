@@ -0,0 +1,141 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.MappedFileReader;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.google.gson.JsonIOException;
+
+public class MappedFileReaderTest {
+
+	String target = "{\"properties\":[{\"foo\":\"bär\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\",\"comp1\":\"yes\"},{\"wah\":{\"foo\":\"blam € 😀\"}}]}";
+	Path file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("validate", ".json").toPath();
+		Files.write(file, target.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testReadsAcrossWindows() throws Exception {
+		// windows that cut the two, three and four byte characters
+		for (int window : new int[] { 4, 5, 6, 7, 64,
+				MappedFileReader.DEFAULT_WINDOW }) {
+			assertEquals("window " + window, target, readAll(new MappedFileReader(file,
+					window)));
+		}
+	}
+
+	@Test
+	public void testSkipsByteOrderMark() throws Exception {
+		byte[] text = target.getBytes(StandardCharsets.UTF_8);
+		byte[] marked = new byte[text.length + 3];
+		marked[0] = (byte) 0xEF;
+		marked[1] = (byte) 0xBB;
+		marked[2] = (byte) 0xBF;
+		System.arraycopy(text, 0, marked, 3, text.length);
+		Files.write(file, marked);
+		for (int window : new int[] { 4, 5, MappedFileReader.DEFAULT_WINDOW }) {
+			assertEquals("window " + window, target, readAll(new MappedFileReader(file,
+					window)));
+		}
+		ValidationPlan plan = ValidationPlan
+				.compile("{\"attribute\":\"foo\", \"quantity\":3}");
+		assertTrue(new JsonValidator().check(plan, file).isPass());
+
+		// only a mark at the start of the file is skipped
+		Files.write(file, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+		assertEquals("", readAll(new MappedFileReader(file)));
+		Files.write(file, new byte[] { '"', (byte) 0xEF, (byte) 0xBB,
+				(byte) 0xBF, '"' });
+		assertEquals("\"\uFEFF\"", readAll(new MappedFileReader(file, 4)));
+	}
+
+	@Test
+	public void testReadAfterClose() throws Exception {
+		MappedFileReader reader = new MappedFileReader(file, 4);
+		reader.read(new char[8], 0, 8);
+		reader.close();
+		try {
+			reader.read(new char[8], 0, 8);
+			fail();
+		} catch (IOException e) {
+			// expected, the window is unmapped
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Files.write(file, new byte[0]);
+		assertEquals("", readAll(new MappedFileReader(file)));
+	}
+
+	@Test
+	public void testValidateFileMatchesString() throws Exception {
+		String[] validations = {
+				"{\"attribute\":\"foo\", \"value\":\"[bär,bat]\"}",
+				"{\"attribute\":\"foo\", \"quantity\":3, \"hierarchy\":\"[[properties],[properties],[properties,wah]]\"}",
+				"{\"attribute\":\"foo\", \"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}}",
+				"[{\"attribute\":\"comp1\", \"ancestor\":\"[wah]\"},{\"attribute\":\"wah\"}]" };
+		for (String validation : validations) {
+			ValidationPlan plan = ValidationPlan.compile(validation);
+			JsonValidator validator = new JsonValidator();
+			ValidationResult fromString = validator.evaluate(plan, target);
+			ValidationResult fromFile = validator.evaluate(plan, file);
+			assertEquals(fromString.isPass(), fromFile.isPass());
+			assertEquals(fromString.toDetailMap(), fromFile.toDetailMap());
+			assertEquals(fromString.isPass(), validator.check(plan, file)
+					.isPass());
+			assertEquals(fromString.isPass(), validator.checkFailFast(plan,
+					file).isPass());
+
+			JsonValidator legacy = new JsonValidator();
+			assertEquals(fromString.isPass(), legacy.validate(plan, file));
+			assertEquals(fromString.toDetailMap(),
+					legacy.getLastValidationDetail());
+		}
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		Files.delete(file);
+		try {
+			new JsonValidator().check(
+					ValidationPlan.compile("{\"attribute\":\"foo\"}"), file);
+			fail();
+		} catch (JsonIOException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	private static String readAll(Reader reader) throws IOException {
+		StringBuilder read = new StringBuilder();
+		char[] buffer = new char[3];
+		int n;
+		while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+			read.append(buffer, 0, n);
+		}
+		reader.close();
+		return read.toString();
+	}
+}
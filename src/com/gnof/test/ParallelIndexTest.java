@@ -0,0 +1,116 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.DocumentIndex;
+import com.gnof.core.JsonValidator;
+import com.gnof.core.PlanCache;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ParallelIndexTest {
+
+	ForkJoinPool pool;
+	JsonObject[] documents;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+		JsonParser parser = new JsonParser();
+		documents = new JsonObject[] {
+				(JsonObject) parser.parse("{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\"},{\"wah\":{\"foo\":\"blam\"}}], \"features\":[\"f1\",\"f2\"]}"),
+				// primitives of an array around the objects of the same key
+				(JsonObject) parser.parse("{\"a\":[1,{\"a\":[2,{\"b\":3},\"x\"]},4,[5],{\"c\":{\"a\":6}},7],\"b\":{\"a\":8}}"),
+				new DocumentGenerator(2, 3, 40, 1).document(),
+				new DocumentGenerator(3, 2, 12, 3).document() };
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testMatchesSequential() {
+		for (JsonObject document : documents) {
+			DocumentIndex sequential = DocumentIndex.build(document);
+			for (int threshold : new int[] { 1, 2, 3, 1024 }) {
+				assertSameIndex("split above " + threshold, sequential,
+						DocumentIndex.build(document, pool, threshold));
+			}
+			assertSameIndex("default threshold", sequential,
+					DocumentIndex.build(document, pool));
+		}
+	}
+
+	@Test
+	public void testValidatorResultsMatch() throws Exception {
+		DocumentGenerator generator = new DocumentGenerator(2, 3, 40, 2);
+		JsonObject document = generator.document();
+		ValidationPlan plan = ValidationPlan.compile(generator.rules(10)
+				.toString());
+		JsonValidator sequential = new JsonValidator();
+		JsonValidator parallel = new JsonValidator(ValidationMetrics.NONE,
+				new PlanCache(0), pool);
+		assertSame(pool, parallel.getIndexPool());
+		assertNull(sequential.getIndexPool());
+
+		ValidationResult expected = sequential.evaluate(plan, document);
+		ValidationResult actual = parallel.evaluate(plan, document);
+		assertEquals(expected.isPass(), actual.isPass());
+		assertEquals(expected.toDetailMap(), actual.toDetailMap());
+		assertEquals(expected.isPass(), parallel.check(plan, document)
+				.isPass());
+		assertEquals(expected.failedRule(),
+				parallel.checkFailFast(plan, document).failedRule());
+	}
+
+	@Test
+	public void testPlanIndexMatchesSequential() throws Exception {
+		DocumentGenerator generator = new DocumentGenerator(2, 3, 40, 2);
+		ValidationPlan[] plans = {
+				ValidationPlan.compile(generator.rules(10).toString()),
+				// the array of primitives is counted, its values aren't kept
+				ValidationPlan.compile("[{\"attribute\":\"a\", \"quantity\":4},{\"attribute\":\"c\", \"value\":\"x\"}]"),
+				ValidationPlan.compile("{\"attribute\":\"b\", \"ancestor\":\"[a]\"}") };
+		for (ValidationPlan plan : plans) {
+			for (JsonObject document : documents) {
+				DocumentIndex sequential = DocumentIndex.build(document, plan);
+				for (int threshold : new int[] { 1, 2, 1024 }) {
+					assertSameIndex("split above " + threshold, sequential,
+							DocumentIndex.build(document, plan, pool, threshold));
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThresholdBelowOne() {
+		DocumentIndex.build(documents[0], pool, 0);
+	}
+
+	private static void assertSameIndex(String message, DocumentIndex expected,
+			DocumentIndex actual) {
+		assertEquals(message, expected.size(), actual.size());
+		assertEquals(message, expected.keys(), actual.keys());
+		for (String key : expected.keys()) {
+			assertEquals(message + " " + key, expected.count(key),
+					actual.count(key));
+			assertEquals(message + " " + key, expected.values(key),
+					actual.values(key));
+			assertEquals(message + " " + key, expected.paths(key, null),
+					actual.paths(key, null));
+			assertEquals(message + " " + key, expected.paths(key, "v1"),
+					actual.paths(key, "v1"));
+		}
+	}
+}
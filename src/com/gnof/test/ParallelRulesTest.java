@@ -0,0 +1,117 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.PlanCache;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ParallelRulesTest {
+
+	ForkJoinPool pool;
+	JsonObject document;
+	ValidationPlan plan;
+	ValidationPlan failingPlan;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+		DocumentGenerator generator = new DocumentGenerator(2, 3, 12, 2);
+		document = generator.document();
+
+		JsonArray rules = generator.rules(40);
+		// an invalid rule and rules that fail among the ones that pass
+		rules.add(new JsonParser().parse("{\"value\":\"v0\"}"));
+		rules.add(new JsonParser().parse("{\"attribute\":\"leaf0\", \"quantity\":1}"));
+		plan = ValidationPlan.compile(rules.toString());
+
+		JsonArray generated = generator.rules(20);
+		JsonArray failing = new JsonArray();
+		for (int i = 0; i < generated.size(); i++) {
+			if (i == 7) {
+				failing.add(new JsonParser().parse("{\"attribute\":\"leaf1\", \"value\":\"missing\"}"));
+			} else if (i == 13) {
+				failing.add(new JsonParser().parse("{\"attribute\":\"missing\"}"));
+			} else {
+				failing.add(generated.get(i));
+			}
+		}
+		failingPlan = ValidationPlan.compile(failing.toString());
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testEvaluateMatchesSequential() {
+		for (ValidationPlan p : new ValidationPlan[] { plan, failingPlan }) {
+			ValidationResult expected = new JsonValidator().evaluate(p,
+					document);
+			ValidationResult actual = parallel().evaluate(p, document);
+			assertSameVerdicts(expected, actual);
+			assertEquals(expected.toDetailMap(), actual.toDetailMap());
+
+			expected = new JsonValidator().check(p, document);
+			actual = parallel().check(p, document);
+			assertSameVerdicts(expected, actual);
+			assertEquals(expected.toDetailMap(), actual.toDetailMap());
+		}
+	}
+
+	@Test
+	public void testFailFastStopsAtFirstFailure() {
+		for (int run = 0; run < 20; run++) {
+			ValidationResult expected = new JsonValidator().checkFailFast(
+					failingPlan, document);
+			ValidationResult actual = parallel().checkFailFast(failingPlan,
+					document);
+			assertEquals(7, actual.failedRule());
+			assertSameVerdicts(expected, actual);
+			assertEquals(expected.toDetailMap(), actual.toDetailMap());
+		}
+	}
+
+	@Test
+	public void testValidateKeepsDetails() {
+		JsonValidator sequential = new JsonValidator();
+		JsonValidator parallel = parallel();
+		assertEquals(sequential.validate(plan, document),
+				parallel.validate(plan, document));
+		assertEquals(sequential.result(), parallel.result());
+		assertEquals(sequential.getLastValidationDetail(),
+				parallel.getLastValidationDetail());
+		assertSame(pool, parallel.getRulePool());
+		assertNull(sequential.getRulePool());
+	}
+
+	private JsonValidator parallel() {
+		return new JsonValidator(ValidationMetrics.NONE, new PlanCache(0),
+				null, pool);
+	}
+
+	private static void assertSameVerdicts(ValidationResult expected,
+			ValidationResult actual) {
+		assertEquals(expected.isPass(), actual.isPass());
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.failedRule(), actual.failedRule());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("rule " + i, expected.isPass(i), actual.isPass(i));
+			assertEquals("rule " + i, expected.isEvaluated(i),
+					actual.isEvaluated(i));
+			assertEquals("rule " + i, expected.getRule(i), actual.getRule(i));
+		}
+	}
+}
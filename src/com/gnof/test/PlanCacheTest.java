@@ -0,0 +1,169 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.PlanCache;
+import com.gnof.core.ValidationPlan;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.gnof.metrics.ValidationMetrics;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class PlanCacheTest {
+
+	String fooValidation = "{\"attribute\":\"foo\"}";
+	String barValidation = "{\"attribute\":\"bar\"}";
+	String bazValidation = "{\"attribute\":\"baz\"}";
+	String target = "{\"foo\":\"bar\",\"baz\":1}";
+
+	@Test
+	public void testHitsAndMisses() throws Exception {
+		PlanCache cache = new PlanCache(10);
+		ValidationPlan plan = cache.get(fooValidation);
+		assertSame(plan, cache.get(fooValidation));
+		assertNotSame(plan, cache.get(barValidation));
+		assertEquals(1, cache.hits());
+		assertEquals(2, cache.misses());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		PlanCache cache = new PlanCache(2);
+		ValidationPlan foo = cache.get(fooValidation);
+		cache.get(barValidation);
+		// foo is now used more recently than bar
+		cache.get(fooValidation);
+		cache.get(bazValidation);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.evictions());
+		assertSame(foo, cache.get(fooValidation));
+		long misses = cache.misses();
+		cache.get(barValidation);
+		assertEquals(misses + 1, cache.misses());
+	}
+
+	@Test
+	public void testPrewarm() throws Exception {
+		PlanCache cache = new PlanCache(10);
+		cache.prewarm(Arrays.asList(fooValidation, barValidation));
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.misses());
+		cache.get(barValidation);
+		assertEquals(1, cache.hits());
+		assertEquals(0, cache.misses());
+	}
+
+	@Test
+	public void testElementsByContent() throws Exception {
+		PlanCache cache = new PlanCache(10);
+		JsonObject foo = new JsonParser().parse(fooValidation)
+				.getAsJsonObject();
+		ValidationPlan plan = cache.get(foo);
+		assertSame(plan, cache.get(foo));
+		// an equal element and the text of the element share the plan
+		assertSame(plan, cache.get(new JsonParser().parse(fooValidation)));
+		assertSame(plan, cache.get(fooValidation));
+		assertEquals(3, cache.hits());
+		assertEquals(1, cache.misses());
+
+		// a changed element gets the plan of what it holds now
+		foo.addProperty("attribute", "baz");
+		assertEquals("baz", cache.get(foo).getUnit(0).getAttribute());
+		assertEquals(2, cache.misses());
+
+		JsonObject rule = new JsonParser().parse(
+				"{\"attribute\":\"foo\", \"value\":\"bar\"}")
+				.getAsJsonObject();
+		JsonObject toValidate = new JsonParser().parse(target)
+				.getAsJsonObject();
+		assertTrue(new JsonValidator().validate(rule, toValidate));
+		rule.addProperty("value", "blam");
+		assertFalse(new JsonValidator().validate(rule, toValidate));
+	}
+
+	@Test
+	public void testInvalidNotCached() {
+		PlanCache cache = new PlanCache(10);
+		try {
+			cache.get("\"attribute\"");
+			fail();
+		} catch (InvalidValidationJson e) {
+			// expected
+		}
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEmptyCacheHoldsNothing() throws Exception {
+		PlanCache cache = new PlanCache(0);
+		cache.get(fooValidation);
+		cache.get(fooValidation);
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	public void testValidatorUsesCache() throws Exception {
+		PlanCache cache = new PlanCache(10);
+		JsonValidator validator = new JsonValidator(ValidationMetrics.NONE,
+				cache);
+		assertSame(cache, validator.getPlanCache());
+		assertTrue(validator.validate(fooValidation, target));
+		assertTrue(validator.validate(fooValidation, target));
+		assertTrue(validator.validate(new JsonParser().parse(fooValidation),
+				new JsonParser().parse(target).getAsJsonObject()));
+		new JsonValidator(ValidationMetrics.NONE, cache).validate(
+				barValidation, target);
+		assertEquals(2, cache.hits());
+		assertEquals(2, cache.misses());
+
+		// validators share a cache unless they're given their own
+		assertSame(new JsonValidator().getPlanCache(),
+				new JsonValidator().getPlanCache());
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception {
+		final PlanCache cache = new PlanCache(8);
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 2000; i++) {
+							String validation = "{\"attribute\":\"key" + i
+									% 16 + "\"}";
+							ValidationPlan plan = cache.get(validation);
+							if (!plan.getUnit(0).getAttribute()
+									.equals("key" + i % 16)) {
+								failures.incrementAndGet();
+							}
+						}
+					} catch (InvalidValidationJson e) {
+						failures.incrementAndGet();
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(8000, cache.hits() + cache.misses());
+		assertTrue(cache.size() <= 8);
+	}
+}
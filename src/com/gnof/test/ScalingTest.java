@@ -0,0 +1,222 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gnof.core.DocumentIndex;
+import com.gnof.core.ValidationUnit;
+import com.gnof.core.ValidationWorker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Runs the ValidationWorker over generated documents of growing size and fails
+ * when the work grows faster than the declared bound. The growth is the slope
+ * of log(work) against log(size), so a linear path measures about 1 and a
+ * quadratic one about 2. The work is measured as the bytes allocated, which
+ * does not vary between runs or with the load of the machine. The time taken
+ * is left to the CheckBenchmark of the benchmarks module; the sweeps are
+ * skipped where the runtime can't measure allocations.
+ *
+ * @author kofong
+ *
+ */
+public class ScalingTest {
+
+	/** The declared bound of every sweep: linear in the size */
+	private static final double LINEAR = 1.0;
+	/** Leeway of the allocation growth */
+	private static final double ALLOCATION_TOLERANCE = 0.25;
+
+	private static final int[] ARRAY_LENGTHS = { 1000, 2000, 4000, 8000 };
+	private static final int WARMUP = 3;
+	private static final int RUNS = 5;
+
+	@Test
+	public void testQuantityScalesLinearly() throws Exception {
+		assertLinearInArrayLength(DocumentGenerator.QUANTITY);
+	}
+
+	@Test
+	public void testValueScalesLinearly() throws Exception {
+		assertLinearInArrayLength(DocumentGenerator.VALUE);
+	}
+
+	@Test
+	public void testCompositeScalesLinearly() throws Exception {
+		assertLinearInArrayLength(DocumentGenerator.COMPOSITE);
+	}
+
+	@Test
+	public void testAncestorScalesLinearly() throws Exception {
+		assertLinearInArrayLength(DocumentGenerator.ANCESTOR);
+	}
+
+	@Test
+	public void testHierarchyScalesLinearly() throws Exception {
+		assertLinearInArrayLength(DocumentGenerator.HIERARCHY);
+	}
+
+	@Test
+	public void testRepeatedKeysScaleLinearly() throws Exception {
+		// three nested lists whose keys are the same on every level
+		int[] arrayLengths = { 10, 14, 18, 22 };
+		Sweep sweep = new Sweep("repeated keys", arrayLengths.length);
+		for (int i = 0; i < arrayLengths.length; i++) {
+			DocumentGenerator generator = new DocumentGenerator(3, 2,
+					arrayLengths[i], 3);
+			sweep.measure(i, generator.leafObjects(), generator.document(),
+					units(generator.rules(10)));
+		}
+		sweep.assertGrowth(LINEAR);
+	}
+
+	@Test
+	public void testRuleCountScalesLinearly() throws Exception {
+		DocumentGenerator generator = new DocumentGenerator(1, 4, 2000, 1);
+		JsonObject document = generator.document();
+		int[] ruleCounts = { 10, 20, 40, 80 };
+		Sweep sweep = new Sweep("rule count", ruleCounts.length);
+		for (int i = 0; i < ruleCounts.length; i++) {
+			sweep.measure(i, ruleCounts[i], document,
+					units(generator.rules(ruleCounts[i])));
+		}
+		sweep.assertGrowth(LINEAR);
+	}
+
+	@Test
+	public void testGeneratorIsDeterministic() {
+		DocumentGenerator generator = new DocumentGenerator(2, 3, 4, 2);
+		assertEquals(generator.document(), generator.document());
+		assertEquals(generator.rules(7), generator.rules(7));
+		assertEquals(new DocumentGenerator(2, 3, 4, 2).document(),
+				generator.document());
+	}
+
+	@Test
+	public void testGeneratorShape() throws Exception {
+		DocumentGenerator generator = new DocumentGenerator(2, 3, 4, 1);
+		JsonObject document = generator.document();
+		DocumentIndex index = DocumentIndex.build(document);
+		// (4 + 2) objects on the first level, each with (4 + 2) below it
+		assertEquals(36, generator.leafObjects());
+		assertEquals(36, index.count("leaf0"));
+		assertEquals(6, index.count("key0_1"));
+		assertEquals(4, document.getAsJsonArray("key0_0").size());
+
+		for (ValidationUnit unit : units(generator.rules(5))) {
+			JsonObject result = new ValidationWorker().validate(unit, document,
+					index);
+			assertTrue(result.get(ValidationWorker.HAS_ATTRIBUTE)
+					.getAsBoolean());
+		}
+	}
+
+	private void assertLinearInArrayLength(String check) throws Exception {
+		Sweep sweep = new Sweep(check, ARRAY_LENGTHS.length);
+		for (int i = 0; i < ARRAY_LENGTHS.length; i++) {
+			DocumentGenerator generator = new DocumentGenerator(2, 3,
+					ARRAY_LENGTHS[i] / 50, 1);
+			List<ValidationUnit> units = new ArrayList<ValidationUnit>();
+			units.add(new ValidationUnit(generator.rule(check, 0)));
+			sweep.measure(i, generator.leafObjects(), generator.document(),
+					units);
+		}
+		sweep.assertGrowth(LINEAR);
+	}
+
+	private static List<ValidationUnit> units(JsonArray rules)
+			throws Exception {
+		List<ValidationUnit> units = new ArrayList<ValidationUnit>();
+		for (int i = 0; i < rules.size(); i++) {
+			units.add(new ValidationUnit(rules.get(i).getAsJsonObject()));
+		}
+		return units;
+	}
+
+	/**
+	 * The sizes of a sweep with the fewest bytes allocated over several runs,
+	 * indexing the document and validating every unit against it
+	 */
+	private static class Sweep {
+		private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+		private final String name;
+		private final double[] sizes;
+		private final double[] bytes;
+
+		Sweep(String name, int points) {
+			assumeTrue("allocations can't be measured", THREADS != null);
+			this.name = name;
+			sizes = new double[points];
+			bytes = new double[points];
+		}
+
+		void measure(int point, double size, JsonObject document,
+				List<ValidationUnit> units) {
+			long threadId = Thread.currentThread().getId();
+			long fewest = Long.MAX_VALUE;
+			for (int run = 0; run < WARMUP + RUNS; run++) {
+				long allocated = THREADS.getThreadAllocatedBytes(threadId);
+				DocumentIndex index = DocumentIndex.build(document);
+				for (ValidationUnit unit : units) {
+					new ValidationWorker().validate(unit, document, index);
+				}
+				allocated = THREADS.getThreadAllocatedBytes(threadId)
+						- allocated;
+				if (run >= WARMUP) {
+					fewest = Math.min(fewest, allocated);
+				}
+			}
+			sizes[point] = size;
+			bytes[point] = fewest;
+		}
+
+		void assertGrowth(double bound) {
+			double growth = growth(sizes, bytes);
+			assertTrue(name + " allocates as size^" + growth
+					+ ", bound is size^" + bound, growth <= bound
+					+ ALLOCATION_TOLERANCE);
+		}
+
+		private static com.sun.management.ThreadMXBean threads() {
+			java.lang.management.ThreadMXBean threads = ManagementFactory
+					.getThreadMXBean();
+			if (threads instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threads)
+							.isThreadAllocatedMemorySupported()) {
+				((com.sun.management.ThreadMXBean) threads)
+						.setThreadAllocatedMemoryEnabled(true);
+				return (com.sun.management.ThreadMXBean) threads;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The least squares slope of log(work) against log(size)
+	 */
+	private static double growth(double[] sizes, double[] work) {
+		int n = sizes.length;
+		double meanX = 0;
+		double meanY = 0;
+		for (int i = 0; i < n; i++) {
+			meanX += Math.log(sizes[i]) / n;
+			meanY += Math.log(work[i]) / n;
+		}
+		double covariance = 0;
+		double variance = 0;
+		for (int i = 0; i < n; i++) {
+			double dx = Math.log(sizes[i]) - meanX;
+			covariance += dx * (Math.log(work[i]) - meanY);
+			variance += dx * dx;
+		}
+		return covariance / variance;
+	}
+}
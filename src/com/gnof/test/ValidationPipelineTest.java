@@ -0,0 +1,255 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.RecordListener;
+import com.gnof.core.ValidationPipeline;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ValidationPipelineTest {
+
+	String validation = "[{\"attribute\":\"foo\", \"value\":\"[bär,bat]\"},{\"attribute\":\"comp1\", \"ancestor\":\"[properties]\"}]";
+	String[] values = { "bär", "bat", "blam € 😀", "no" };
+
+	ValidationPlan plan;
+	List<String> records;
+
+	@Before
+	public void setUp() throws Exception {
+		plan = ValidationPlan.compile(validation);
+		records = new ArrayList<String>();
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			records.add("{\"properties\":[{\"foo\":\""
+					+ values[random.nextInt(values.length)]
+					+ "\",\"comp1\":\"yes\"},{\"foo\":\"bat\"}],\"n\":" + i
+					+ "}");
+		}
+	}
+
+	@Test
+	public void testResultsInSubmitOrder() throws Exception {
+		JsonValidator validator = new JsonValidator();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < records.size(); i++) {
+			JsonObject json = new JsonParser().parse(records.get(i))
+					.getAsJsonObject();
+			expected.add(format(i, validator.check(plan, json)));
+		}
+		for (int capacity : new int[] { 1, 2,
+				ValidationPipeline.DEFAULT_CAPACITY }) {
+			Collector collector = new Collector();
+			try (ValidationPipeline pipeline = new ValidationPipeline(
+					validator, plan, collector, capacity)) {
+				for (int i = 0; i < records.size(); i++) {
+					assertEquals(i, pipeline.submit(records.get(i).getBytes(
+							StandardCharsets.UTF_8)));
+				}
+				assertEquals(records.size(), pipeline.submitted());
+			}
+			assertEquals("capacity " + capacity, expected, collector.results);
+		}
+	}
+
+	@Test
+	public void testMalformedRecordFails() throws Exception {
+		Collector collector = new Collector();
+		try (ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, collector, 4)) {
+			pipeline.submit(records.get(0).getBytes(StandardCharsets.UTF_8));
+			pipeline.submit("{\"foo\" 1}".getBytes(StandardCharsets.UTF_8));
+			pipeline.submit("[1,2]".getBytes(StandardCharsets.UTF_8));
+			pipeline.submit(records.get(1).getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(4, collector.results.size());
+		assertTrue(collector.results.get(0).startsWith("0 "));
+		assertTrue(collector.results.get(1).startsWith("1 failed"));
+		assertTrue(collector.results.get(2).startsWith("2 failed"));
+		assertTrue(collector.results.get(3).startsWith("3 "));
+	}
+
+	@Test
+	public void testListenerExceptionStopsPipeline() throws Exception {
+		final IllegalArgumentException thrown = new IllegalArgumentException();
+		RecordListener listener = new RecordListener() {
+			@Override
+			public void validated(long number, ValidationResult result) {
+				throw thrown;
+			}
+
+			@Override
+			public void failed(long number, RuntimeException e) {
+			}
+		};
+		ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, listener, 2);
+		try {
+			for (String record : records) {
+				pipeline.submit(record.getBytes(StandardCharsets.UTF_8));
+			}
+			pipeline.close();
+			fail("the exception of the listener is thrown");
+		} catch (IllegalStateException e) {
+			assertSame(thrown, e.getCause());
+		}
+		try {
+			pipeline.close();
+			fail("the exception of the listener is thrown");
+		} catch (IllegalStateException e) {
+			assertSame(thrown, e.getCause());
+		}
+	}
+
+	@Test
+	public void testSubmitWaitsForSlowListener() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		RecordListener listener = new RecordListener() {
+			@Override
+			public void validated(long number, ValidationResult result) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void failed(long number, RuntimeException e) {
+			}
+		};
+		final ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, listener, 2);
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (String record : records) {
+						pipeline.submit(record.getBytes(StandardCharsets.UTF_8));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		producer.start();
+		producer.join(500);
+		// one record held by each stage and two by each queue
+		assertTrue(producer.isAlive());
+		assertTrue(pipeline.submitted() <= 9);
+		release.countDown();
+		producer.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(producer.isAlive());
+		pipeline.close();
+		assertEquals(records.size(), pipeline.submitted());
+	}
+
+	@Test
+	public void testIdleStagesPark() throws Exception {
+		Collector collector = new Collector();
+		try (ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, collector, 4)) {
+			pipeline.submit(records.get(0).getBytes(StandardCharsets.UTF_8));
+			// idle stages wait without a timeout until a record comes
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!stagesWaiting() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertTrue(stagesWaiting());
+			assertEquals(1, collector.results.size());
+			pipeline.submit(records.get(1).getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(2, collector.results.size());
+	}
+
+	@Test
+	public void testInterruptedClose() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		RecordListener listener = new RecordListener() {
+			@Override
+			public void validated(long number, ValidationResult result) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void failed(long number, RuntimeException e) {
+			}
+		};
+		ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, listener, 2);
+		pipeline.submit(records.get(0).getBytes(StandardCharsets.UTF_8));
+		Thread.currentThread().interrupt();
+		try {
+			pipeline.close();
+			fail("an interrupted close stops the pipeline");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		} finally {
+			assertTrue(Thread.interrupted());
+			release.countDown();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSubmitAfterClose() throws Exception {
+		ValidationPipeline pipeline = new ValidationPipeline(
+				new JsonValidator(), plan, new Collector());
+		pipeline.close();
+		pipeline.submit(records.get(0).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 *
+	 * @return whether every stage thread alive is waiting without a timeout
+	 */
+	private static boolean stagesWaiting() {
+		int stages = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("validation-pipeline-")) {
+				if (thread.getState() != Thread.State.WAITING) {
+					return false;
+				}
+				stages++;
+			}
+		}
+		return stages == 3;
+	}
+
+	private static String format(long number, ValidationResult result) {
+		return number + " " + result.isPass() + " " + result.toDetailMap();
+	}
+
+	/**
+	 * Listener keeping every result as a line
+	 */
+	private static class Collector implements RecordListener {
+		List<String> results = new ArrayList<String>();
+
+		@Override
+		public void validated(long number, ValidationResult result) {
+			results.add(format(number, result));
+		}
+
+		@Override
+		public void failed(long number, RuntimeException e) {
+			results.add(number + " failed " + e);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+import com.gnof.exceptions.InvalidValidationJson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ValidationPlanTest {
+
+	String multipleValidation;
+	String invalidValidation;
+	String compositeValidation;
+
+	String target;
+	String otherTarget;
+
+	@Before
+	public void setUp() throws Exception {
+		multipleValidation = "[{\"attribute\":\"foo\", \"value\":\"[bar, bat]\", \"quantity\":2},{\"attribute\":\"comp1\"}]";
+		invalidValidation = "[{\"attribute\":\"foo\"},{\"value\":\"bar\"}]";
+		compositeValidation = "{\"attribute\":\"foo\",\"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}}";
+
+		target = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\"}]}";
+		otherTarget = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"yes\",\"foo\":\"blam\"}]}";
+	}
+
+	@Test
+	public void testCompile() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(multipleValidation);
+		assertEquals(2, plan.size());
+		assertTrue(plan.isValid(0));
+		assertEquals("foo", plan.getUnit(0).getAttribute());
+		assertEquals(2, plan.getUnit(0).getQuantity());
+		assertEquals("comp1", plan.getUnit(1).getAttribute());
+	}
+
+	@Test
+	public void testCompileInvalidRule() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(invalidValidation);
+		assertEquals(2, plan.size());
+		assertTrue(plan.isValid(0));
+		assertFalse(plan.isValid(1));
+		assertNull(plan.getUnit(1));
+	}
+
+	@Test(expected = InvalidValidationJson.class)
+	public void testCompileInvalidJson() throws InvalidValidationJson {
+		ValidationPlan.compile("\"foo\"");
+	}
+
+	@Test
+	public void testCompileCopiesValidationJson() throws InvalidValidationJson {
+		JsonObject validationJson = (JsonObject) new JsonParser().parse(compositeValidation);
+		ValidationPlan plan = ValidationPlan.compile(validationJson);
+		validationJson.addProperty("attribute", "changed");
+		assertEquals("foo", plan.getUnit(0).getAttribute());
+		assertEquals("foo", plan.getRule(0).get("attribute").getAsString());
+	}
+
+	@Test
+	public void testRulesAreCopied() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(compositeValidation);
+		plan.getRule(0).addProperty("attribute", "changed");
+		assertEquals("foo", plan.getRule(0).get("attribute").getAsString());
+		assertNotSame(plan.getRule(0), plan.getRule(0));
+		assertTrue(new JsonValidator().validate(plan, target));
+	}
+
+	@Test
+	public void testPlanReuse() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(compositeValidation);
+		assertEquals(1, plan.getUnit(0).getCompositeUnits().size());
+
+		JsonValidator validator = new JsonValidator();
+		assertTrue(validator.validate(plan, target));
+		assertFalse(validator.validate(plan, otherTarget));
+		assertTrue(validator.validate(plan, target));
+	}
+
+	@Test
+	public void testPlanMatchesUncompiled() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(multipleValidation);
+		JsonValidator validator = new JsonValidator();
+		assertEquals(validator.validate(multipleValidation, target),
+				validator.validate(plan, target));
+		assertEquals(validator.validate(multipleValidation, otherTarget),
+				validator.validate(plan, otherTarget));
+	}
+
+	@Test
+	public void testPlanWithInvalidRuleFails() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile(invalidValidation);
+		JsonValidator validator = new JsonValidator();
+		assertFalse(validator.validate(plan, target));
+	}
+
+	@Test
+	public void testPathAttributes() throws InvalidValidationJson {
+		ValidationPlan plan = ValidationPlan.compile("[{\"attribute\":\"foo\", \"ancestor\":\"[properties]\"},{\"attribute\":\"bar\", \"hierarchy\":\"[[properties]]\"},{\"attribute\":\"comp1\", \"value\":\"yes\"}]");
+		assertEquals(2, plan.pathAttributes().size());
+		assertTrue(plan.pathAttributes().contains("foo"));
+		assertTrue(plan.pathAttributes().contains("bar"));
+		assertFalse(ValidationPlan.compile(multipleValidation).pathAttributes().contains("foo"));
+	}
+}
@@ -0,0 +1,361 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationProcessor;
+import com.gnof.core.ValidationResult;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+public class ValidationProcessorTest {
+
+	String validation = "[{\"attribute\":\"foo\", \"value\":\"[bär,bat]\"},{\"attribute\":\"comp1\", \"ancestor\":\"[properties]\"}]";
+	String[] values = { "bär", "bat", "blam € 😀", "no" };
+
+	ValidationPlan plan;
+	List<String> records;
+	List<String> expected;
+
+	@Before
+	public void setUp() throws Exception {
+		plan = ValidationPlan.compile(validation);
+		records = new ArrayList<String>();
+		expected = new ArrayList<String>();
+		Random random = new Random(42);
+		JsonValidator validator = new JsonValidator();
+		for (int i = 0; i < 200; i++) {
+			String record = "{\"properties\":[{\"foo\":\""
+					+ values[random.nextInt(values.length)]
+					+ "\",\"comp1\":\"yes\"},{\"foo\":\"bat\"}],\"n\":" + i
+					+ "}";
+			records.add(record);
+			expected.add(format(validator.check(plan, record)));
+		}
+	}
+
+	@Test
+	public void testDocumentsInOrder() {
+		ListPublisher<JsonObject> upstream = new ListPublisher<JsonObject>(
+				documents());
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		Collector collector = new Collector(7);
+		upstream.subscribe(processor);
+		processor.subscribe(collector);
+		assertEquals(expected, collector.results);
+		assertTrue(collector.completed);
+		assertNull(collector.error);
+	}
+
+	@Test
+	public void testBuffersMatchDocuments() {
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		for (String record : records) {
+			buffers.add(ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8)));
+		}
+		ListPublisher<ByteBuffer> upstream = new ListPublisher<ByteBuffer>(
+				buffers);
+		ValidationProcessor<ByteBuffer> processor = ValidationProcessor
+				.ofBuffers(new JsonValidator(), plan);
+		// the subscriber comes first, its demand waits for the upstream
+		Collector collector = new Collector(1);
+		processor.subscribe(collector);
+		upstream.subscribe(processor);
+		assertEquals(expected, collector.results);
+		assertTrue(collector.completed);
+		assertEquals(0, buffers.get(0).position());
+	}
+
+	@Test
+	public void testOnlyRequestedDocumentsPulled() {
+		ListPublisher<JsonObject> upstream = new ListPublisher<JsonObject>(
+				documents());
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		Collector collector = new Collector(0);
+		upstream.subscribe(processor);
+		processor.subscribe(collector);
+		assertEquals(0, upstream.next);
+
+		collector.request(3);
+		assertEquals(3, upstream.next);
+		assertEquals(expected.subList(0, 3), collector.results);
+
+		collector.subscription.cancel();
+		assertTrue(upstream.cancelled);
+		collector.request(3);
+		assertEquals(3, collector.results.size());
+		assertFalse(collector.completed);
+	}
+
+	@Test
+	public void testMalformedBufferEndsWithError() {
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		buffers.add(ByteBuffer.wrap(records.get(0).getBytes(
+				StandardCharsets.UTF_8)));
+		buffers.add(ByteBuffer.wrap("{\"foo\" 1}".getBytes(StandardCharsets.UTF_8)));
+		buffers.add(ByteBuffer.wrap(records.get(1).getBytes(
+				StandardCharsets.UTF_8)));
+		ListPublisher<ByteBuffer> upstream = new ListPublisher<ByteBuffer>(
+				buffers);
+		ValidationProcessor<ByteBuffer> processor = ValidationProcessor
+				.ofBuffers(new JsonValidator(), plan);
+		Collector collector = new Collector(10);
+		upstream.subscribe(processor);
+		processor.subscribe(collector);
+		assertEquals(expected.subList(0, 1), collector.results);
+		assertTrue(collector.error instanceof JsonSyntaxException);
+		assertFalse(collector.completed);
+		assertTrue(upstream.cancelled);
+	}
+
+	@Test
+	public void testCompletedBeforeSubscriber() {
+		ListPublisher<JsonObject> upstream = new ListPublisher<JsonObject>(
+				new ArrayList<JsonObject>());
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		upstream.subscribe(processor);
+		upstream.complete();
+		Collector collector = new Collector(1);
+		processor.subscribe(collector);
+		assertTrue(collector.completed);
+
+		Collector second = new Collector(1);
+		processor.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+		assertFalse(second.completed);
+	}
+
+	@Test
+	public void testNonPositiveRequest() {
+		ListPublisher<JsonObject> upstream = new ListPublisher<JsonObject>(
+				documents());
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		Collector collector = new Collector(0);
+		upstream.subscribe(processor);
+		processor.subscribe(collector);
+		collector.subscription.request(0);
+		assertTrue(collector.error instanceof IllegalArgumentException);
+		assertTrue(upstream.cancelled);
+	}
+
+	@Test
+	public void testNonPositiveRequestDuringResult() throws Exception {
+		final ListPublisher<JsonObject> upstream = new ListPublisher<JsonObject>(
+				documents());
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		final CountDownLatch publishing = new CountDownLatch(1);
+		final CountDownLatch requested = new CountDownLatch(1);
+		final CountDownLatch ended = new CountDownLatch(1);
+		final AtomicBoolean overlapped = new AtomicBoolean();
+		final AtomicBoolean inNext = new AtomicBoolean();
+		Collector collector = new Collector(0) {
+			@Override
+			public void onNext(ValidationResult item) {
+				inNext.set(true);
+				publishing.countDown();
+				try {
+					requested.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onNext(item);
+				inNext.set(false);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				overlapped.set(inNext.get());
+				super.onError(throwable);
+				ended.countDown();
+			}
+		};
+		upstream.subscribe(processor);
+		processor.subscribe(collector);
+		collector.pending = 1;
+		Thread delivery = new Thread() {
+			@Override
+			public void run() {
+				upstream.subscriber.onNext(upstream.items.get(0));
+			}
+		};
+		delivery.start();
+		assertTrue(publishing.await(10, TimeUnit.SECONDS));
+		// the error waits for the result being published
+		collector.subscription.request(0);
+		assertNull(collector.error);
+		requested.countDown();
+		assertTrue(ended.await(10, TimeUnit.SECONDS));
+		delivery.join();
+
+		assertFalse(overlapped.get());
+		assertTrue(collector.error instanceof IllegalArgumentException);
+		assertEquals(1, collector.results.size());
+		assertTrue(upstream.cancelled);
+	}
+
+	@Test
+	public void testSubmissionPublisher() throws Exception {
+		ValidationProcessor<JsonObject> processor = ValidationProcessor
+				.ofDocuments(new JsonValidator(), plan);
+		final CountDownLatch done = new CountDownLatch(1);
+		Collector collector = new Collector(2) {
+			@Override
+			public void onComplete() {
+				super.onComplete();
+				done.countDown();
+			}
+		};
+		try (SubmissionPublisher<JsonObject> publisher = new SubmissionPublisher<JsonObject>()) {
+			publisher.subscribe(processor);
+			processor.subscribe(collector);
+			for (JsonObject document : documents()) {
+				publisher.submit(document);
+			}
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertEquals(expected, collector.results);
+	}
+
+	private List<JsonObject> documents() {
+		List<JsonObject> documents = new ArrayList<JsonObject>();
+		for (String record : records) {
+			documents.add(new JsonParser().parse(record).getAsJsonObject());
+		}
+		return documents;
+	}
+
+	private static String format(ValidationResult result) {
+		return result.isPass() + " " + result.toDetailMap();
+	}
+
+	/**
+	 * Publisher of a list, handing items out on the requesting thread
+	 */
+	private static class ListPublisher<T> implements Flow.Publisher<T> {
+		List<T> items;
+		Flow.Subscriber<? super T> subscriber;
+		int next;
+		long demand;
+		boolean emitting;
+		boolean cancelled;
+		boolean completed;
+
+		ListPublisher(List<T> items) {
+			this.items = items;
+		}
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					demand += n;
+					emit();
+				}
+
+				@Override
+				public void cancel() {
+					cancelled = true;
+				}
+			});
+		}
+
+		void emit() {
+			if (emitting) {
+				return;
+			}
+			emitting = true;
+			while (demand > 0 && next < items.size() && !cancelled) {
+				demand--;
+				subscriber.onNext(items.get(next++));
+			}
+			emitting = false;
+			if (next == items.size() && !items.isEmpty()) {
+				complete();
+			}
+		}
+
+		void complete() {
+			if (!completed && !cancelled) {
+				completed = true;
+				subscriber.onComplete();
+			}
+		}
+	}
+
+	/**
+	 * Subscriber keeping every result as a line, requesting a number of them
+	 * at a time
+	 */
+	private static class Collector implements
+			Flow.Subscriber<ValidationResult> {
+		List<String> results = new ArrayList<String>();
+		Flow.Subscription subscription;
+		int batch;
+		int pending;
+		boolean completed;
+		Throwable error;
+
+		Collector(int batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			request();
+		}
+
+		@Override
+		public void onNext(ValidationResult item) {
+			assertTrue("more results than requested", pending > 0);
+			results.add(format(item));
+			if (--pending == 0) {
+				request();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+
+		void request(int n) {
+			pending += n;
+			subscription.request(n);
+		}
+
+		private void request() {
+			if (batch > 0) {
+				request(batch);
+			}
+		}
+	}
+}
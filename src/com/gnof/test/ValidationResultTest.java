@@ -0,0 +1,193 @@
+package com.gnof.test;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gnof.core.JsonValidator;
+import com.gnof.core.ValidationPlan;
+import com.gnof.core.ValidationResult;
+import com.gnof.core.ValidationWorker;
+import com.google.gson.JsonObject;
+
+public class ValidationResultTest {
+
+	ValidationPlan plan;
+
+	String target;
+	String otherTarget;
+
+	@Before
+	public void setUp() throws Exception {
+		plan = ValidationPlan.compile("[{\"attribute\":\"foo\", \"value\":\"[bar, bat]\", \"quantity\":2},{\"value\":\"bar\"},{\"attribute\":\"comp1\"}]");
+
+		target = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"no\",\"foo\":\"bat\"}]}";
+		otherTarget = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp2\":\"yes\",\"foo\":\"blam\"}]}";
+	}
+
+	@Test
+	public void testRuleOutcomes() {
+		ValidationResult result = new JsonValidator().evaluate(plan, target);
+		assertEquals(3, result.size());
+		// the invalid rule fails the validation
+		assertFalse(result.isPass());
+		assertTrue(result.isPass(0));
+		assertFalse(result.isPass(1));
+		assertNull(result.getDetails(1));
+		assertTrue(result.isPass(2));
+		assertEquals("foo", result.getRule(0).get("attribute").getAsString());
+		assertEquals(2, result.getDetails(0).get(ValidationWorker.QUANTITY_FOUND).getAsInt());
+	}
+
+	@Test
+	public void testDetailsAreCopied() {
+		ValidationResult result = new JsonValidator().evaluate(plan, target);
+		JsonObject details = result.getDetails(0);
+		details.addProperty(ValidationWorker.MATCH_VALUE, false);
+		assertTrue(result.getDetails(0).get(ValidationWorker.MATCH_VALUE).getAsBoolean());
+	}
+
+	@Test
+	public void testRulesAreCopied() {
+		ValidationResult result = new JsonValidator().evaluate(plan, target);
+		result.getRule(0).addProperty("attribute", "changed");
+		for (JsonObject rule : result.toDetailMap().keySet()) {
+			rule.addProperty("attribute", "changed");
+		}
+		assertEquals("foo", result.getRule(0).get("attribute").getAsString());
+		assertEquals("foo", plan.getRule(0).get("attribute").getAsString());
+		assertEquals(result.toDetailMap(), new JsonValidator().evaluate(plan,
+				target).toDetailMap());
+	}
+
+	@Test
+	public void testEvaluateDoesNotChangeValidator() {
+		JsonValidator validator = new JsonValidator();
+		validator.evaluate(plan, target);
+		assertFalse(validator.result());
+		assertTrue(validator.getLastValidationDetail().isEmpty());
+	}
+
+	@Test
+	public void testLastDetailOnlyHoldsLastRun() throws Exception {
+		JsonValidator validator = new JsonValidator();
+		validator.validate(plan, target);
+		assertEquals(2, validator.getLastValidationDetail().size());
+
+		ValidationPlan other = ValidationPlan.compile("{\"attribute\":\"comp2\", \"value\":\"yes\"}");
+		assertTrue(validator.validate(other, otherTarget));
+		assertEquals(new JsonValidator().evaluate(other, otherTarget).toDetailMap(),
+				validator.getLastValidationDetail());
+
+		// the map is built for the caller, changing it changes nothing
+		validator.getLastValidationDetail().clear();
+		assertEquals(1, validator.getLastValidationDetail().size());
+	}
+
+	@Test
+	public void testMatchesValidate() {
+		JsonValidator validator = new JsonValidator();
+		ValidationResult result = new JsonValidator().evaluate(plan, otherTarget);
+		assertEquals(validator.validate(plan, otherTarget), result.isPass());
+		assertEquals(validator.getLastValidationDetail(), result.toDetailMap());
+	}
+
+	@Test
+	public void testSharedValidator() throws Exception {
+		final JsonValidator validator = new JsonValidator();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> passes = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 200; i++) {
+				final String json = i % 2 == 0 ? target : otherTarget;
+				passes.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return validator.evaluate(plan, json).isPass(0);
+					}
+				}));
+			}
+			for (int i = 0; i < passes.size(); i++) {
+				assertEquals(i % 2 == 0, passes.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCheckMatchesEvaluate() throws Exception {
+		String[] validations = {
+				"{\"attribute\":\"foo\", \"value\":\"[bar, bat]\", \"quantity\":2}",
+				"{\"attribute\":\"foo\", \"value\":\"bat\", \"composite\":{\"attribute\":\"comp2\", \"value\":\"no\"}}",
+				"{\"attribute\":\"foo\", \"composite\":[{\"attribute\":\"comp2\", \"value\":\"no\"},{\"attribute\":\"comp1\"}]}",
+				"{\"attribute\":\"foo\", \"ancestor\":\"properties\", \"hierarchy\":\"[[properties]]\"}",
+				"{\"attribute\":\"missing\", \"ancestor\":\"properties\"}",
+				"{\"attribute\":\"missing\"}" };
+		JsonValidator validator = new JsonValidator();
+		for (String validation : validations) {
+			ValidationPlan rules = ValidationPlan.compile(validation);
+			for (String json : new String[] { target, otherTarget }) {
+				ValidationResult evaluated = validator.evaluate(rules, json);
+				ValidationResult checked = validator.check(rules, json);
+				assertEquals(validation, evaluated.isPass(), checked.isPass());
+				assertEquals(validation, evaluated.getDetails(0), checked.getDetails(0));
+			}
+		}
+	}
+
+	@Test
+	public void testCheckDetailsOnFailure() {
+		ValidationResult result = new JsonValidator().check(plan, otherTarget);
+		assertFalse(result.isPass(0));
+		assertFalse(result.getDetails(0).get(ValidationWorker.MATCH_VALUE).getAsBoolean());
+		assertEquals(new JsonValidator().evaluate(plan, otherTarget).toDetailMap(),
+				result.toDetailMap());
+	}
+
+	@Test
+	public void testCheckStream() {
+		ValidationResult result = new JsonValidator().check(plan, new StringReader(target));
+		assertTrue(result.isPass(0));
+		assertEquals(2, result.getDetails(0).get(ValidationWorker.QUANTITY_FOUND).getAsInt());
+	}
+
+	@Test
+	public void testFailFast() throws Exception {
+		ValidationPlan rules = ValidationPlan.compile("[{\"attribute\":\"comp1\"},{\"attribute\":\"foo\", \"value\":\"bat\"},{\"attribute\":\"comp2\", \"value\":\"no\"}]");
+		JsonValidator validator = new JsonValidator();
+
+		ValidationResult failFast = validator.checkFailFast(rules, otherTarget);
+		assertFalse(failFast.isPass());
+		assertEquals(1, failFast.failedRule());
+		assertTrue(failFast.isEvaluated(1));
+		assertFalse(failFast.isEvaluated(2));
+		assertFalse(failFast.isPass(2));
+		assertEquals(2, failFast.toDetailMap().size());
+
+		ValidationResult passed = validator.checkFailFast(rules, target);
+		assertTrue(passed.isPass());
+		assertEquals(-1, passed.failedRule());
+		assertTrue(passed.isEvaluated(2));
+	}
+
+	@Test
+	public void testFailFastComposite() throws Exception {
+		// the second context of comp1 fails the value of foo
+		ValidationPlan rules = ValidationPlan.compile("{\"attribute\":\"foo\", \"value\":\"bar\", \"composite\":{\"attribute\":\"comp1\"}}");
+		String json = "{\"properties\":[{\"foo\":\"bar\",\"comp1\":\"yes\"},{\"comp1\":\"no\",\"foo\":\"bat\"}]}";
+		JsonValidator validator = new JsonValidator();
+		ValidationResult failFast = validator.checkFailFast(rules, json);
+		assertEquals(0, failFast.failedRule());
+		assertEquals(validator.evaluate(rules, json).isPass(), failFast.isPass());
+	}
+}
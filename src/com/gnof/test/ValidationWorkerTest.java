@@ -2,12 +2,15 @@ package com.gnof.test;
 
 import static org.junit.Assert.*;
 
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import com.gnof.core.ValidationUnit;
 import com.gnof.core.ValidationWorker;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -327,4 +330,103 @@ public class ValidationWorkerTest {
 				.getAsInt(), validResult.get(ValidationWorker.HIERARCHY_FOUND)
 				.getAsJsonArray().size());
 	}
+
+	@Test
+	public void testHierarchyExpectedTwice() throws Exception {
+		JsonObject twiceJson = new JsonObject();
+		twiceJson.addProperty("attribute", "foo");
+		twiceJson.addProperty("hierarchy", "[[\"properties\"], [\"properties\"], [\"properties\", \"wah\"]]");
+		JsonObject thriceJson = new JsonObject();
+		thriceJson.addProperty("attribute", "foo");
+		thriceJson.addProperty("hierarchy", "[[\"properties\"], [\"properties\"], [\"properties\"]]");
+
+		ValidationWorker vw = new ValidationWorker();
+		JsonObject twiceResult = vw.validate(new ValidationUnit(twiceJson), hierarchyToValidate);
+		assertTrue(twiceResult.get(ValidationWorker.MATCH_HIERARCHY).getAsBoolean());
+		JsonObject thriceResult = vw.validate(new ValidationUnit(thriceJson), hierarchyToValidate);
+		assertFalse(thriceResult.get(ValidationWorker.MATCH_HIERARCHY).getAsBoolean());
+		assertEquals("[[\"properties\"],[\"properties\"],[\"properties\",\"wah\"]]",
+				thriceResult.get(ValidationWorker.HIERARCHY_FOUND).toString());
+	}
+
+	@Test
+	public void testExpectedValueCopies() throws Exception {
+		JsonObject twiceJson = new JsonObject();
+		twiceJson.addProperty("attribute", "foo");
+		twiceJson.addProperty("value", "[bar, bar]");
+		JsonObject onceEachJson = new JsonObject();
+		onceEachJson.addProperty("attribute", "foo");
+		onceEachJson.addProperty("value", "[bat, bar, bat]");
+
+		ValidationWorker vw = new ValidationWorker();
+		// bar is only found once
+		JsonObject twiceResult = vw.validate(new ValidationUnit(twiceJson), multipleBaseToValidate);
+		assertFalse(twiceResult.get(ValidationWorker.MATCH_VALUE).getAsBoolean());
+		JsonObject onceEachResult = vw.validate(new ValidationUnit(onceEachJson), multipleBaseToValidate);
+		assertFalse(onceEachResult.get(ValidationWorker.MATCH_VALUE).getAsBoolean());
+		assertEquals(2, onceEachResult.get(ValidationWorker.VALUE_FOUND).getAsJsonArray().size());
+	}
+
+	@Test
+	public void testAncestorRepeatedInPath() throws Exception {
+		JsonObject repeatedJson = new JsonObject();
+		repeatedJson.addProperty("attribute", "foo");
+		repeatedJson.addProperty("ancestor", "[wah, properties, wah]");
+		JsonObject missingJson = new JsonObject();
+		missingJson.addProperty("attribute", "foo");
+		missingJson.addProperty("ancestor", "[wah, missing]");
+
+		ValidationWorker vw = new ValidationWorker();
+		JsonObject repeatedResult = vw.validate(new ValidationUnit(repeatedJson), ancestorToValidate);
+		assertTrue(repeatedResult.get(ValidationWorker.MATCH_ANCESTOR).getAsBoolean());
+		JsonObject missingResult = vw.validate(new ValidationUnit(missingJson), ancestorToValidate);
+		assertFalse(missingResult.get(ValidationWorker.MATCH_ANCESTOR).getAsBoolean());
+	}
+
+	@Test
+	public void testOverallPassMatchesResultData() {
+		ValidationUnit[] units = { baseValidation, falseValidation,
+				oneLevelValidation, multipleValidation, hierarchyValidation,
+				ancestorValidation, ancestor2Validation, compositeValidation,
+				compositeFalseValidation, carlosValidation };
+		JsonObject[] targets = { baseToValidate, oneLevelToValidate,
+				multipleBaseToValidate, hierarchyToValidate,
+				ancestorToValidate, ancestor2ToValidate, compositeToValidate };
+		int passes = 0;
+		for (ValidationUnit unit : units) {
+			for (JsonObject target : targets) {
+				ValidationWorker vw = new ValidationWorker();
+				JsonObject result = vw.validate(unit, target);
+				assertEquals(unit + " on " + target, matchesAll(result),
+						vw.isOverallPass());
+				passes += vw.isOverallPass() ? 1 : 0;
+			}
+		}
+		// both verdicts are covered
+		assertTrue(passes > 0);
+		assertTrue(passes < units.length * targets.length);
+	}
+
+	/**
+	 * @return whether every match- property of the result data is true, and
+	 *         of the results of every composite context
+	 */
+	private static boolean matchesAll(JsonObject result) {
+		boolean pass = true;
+		for (Map.Entry<String, JsonElement> entry : result.entrySet()) {
+			if (entry.getKey().startsWith("match-")) {
+				pass = pass && entry.getValue().getAsBoolean();
+			}
+		}
+		JsonElement contexts = result.get(ValidationWorker.COMPOSITE_RESULT);
+		if (contexts != null && contexts.isJsonArray()) {
+			boolean contextsPass = contexts.getAsJsonArray().size() > 0;
+			for (JsonElement context : contexts.getAsJsonArray()) {
+				contextsPass = contextsPass && matchesAll(context.getAsJsonObject());
+			}
+			assertEquals(contextsPass,
+					result.get(ValidationWorker.MATCH_COMPOSITE).getAsBoolean());
+		}
+		return pass;
+	}
 }